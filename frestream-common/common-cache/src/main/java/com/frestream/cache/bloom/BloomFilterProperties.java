@@ -0,0 +1,38 @@
+package com.frestream.cache.bloom;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @description: 布隆过滤器配置
+ *
+ * @author: TJ
+ * @date:  2022-09-15
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.bloom")
+public class BloomFilterProperties {
+
+    /**
+     * 过滤器名称 -> 过滤器参数
+     */
+    private Map<String, Filter> filters = new LinkedHashMap<>();
+
+    @Data
+    public static class Filter {
+
+        /**
+         * 预期元素数量
+         */
+        private long expectedInsertions = 1000000L;
+        /**
+         * 误判率
+         */
+        private double fpp = 0.01D;
+    }
+}
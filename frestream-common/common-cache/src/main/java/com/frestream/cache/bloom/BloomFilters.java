@@ -0,0 +1,49 @@
+package com.frestream.cache.bloom;
+
+import com.frestream.cache.redis.RedisService;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @description: 按名称获取布隆过滤器, 参数取自 frestream.cache.bloom.filters 配置
+ *
+ * @author: TJ
+ * @date:  2022-09-15
+ **/
+@Component
+public class BloomFilters {
+
+    private final RedisService redisService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final BloomFilterProperties properties;
+    private final Map<String, RedisBloomFilter> filters = new ConcurrentHashMap<>();
+
+    public BloomFilters(RedisService redisService, RedisTemplate<String, Object> redisTemplate, BloomFilterProperties properties) {
+        this.redisService = redisService;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取已配置的过滤器
+     */
+    public RedisBloomFilter get(String name) {
+        return filters.computeIfAbsent(name, n -> {
+            BloomFilterProperties.Filter filter = properties.getFilters().get(n);
+            if (filter == null) {
+                throw new IllegalArgumentException("布隆过滤器未配置: " + n);
+            }
+            return new RedisBloomFilter(redisService, redisTemplate, n, filter.getExpectedInsertions(), filter.getFpp());
+        });
+    }
+
+    /**
+     * 获取过滤器, 未配置时按指定参数创建
+     */
+    public RedisBloomFilter get(String name, long expectedInsertions, double fpp) {
+        return filters.computeIfAbsent(name, n -> new RedisBloomFilter(redisService, redisTemplate, n, expectedInsertions, fpp));
+    }
+}
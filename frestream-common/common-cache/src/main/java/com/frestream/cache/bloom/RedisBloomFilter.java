@@ -0,0 +1,268 @@
+package com.frestream.cache.bloom;
+
+import cn.hutool.core.util.IdUtil;
+import com.frestream.cache.redis.RedisService;
+import com.frestream.cache.script.RedisScripts;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * @description:
+ *   基于Redis位图的布隆过滤器, 各节点共享同一份数据, 用于拦截不存在的id穿透到数据库;
+ *   位数组大小与哈希函数个数由预期数量和误判率计算, 各节点配置须一致
+ *
+ * @author: TJ
+ * @date:  2022-09-15
+ **/
+@Slf4j(topic = "common-cache-RedisBloomFilter")
+public class RedisBloomFilter {
+
+    private static final String KEY_PREFIX = "bloom:";
+    /**
+     * 批量写入时每次脚本调用包含的元素个数
+     */
+    private static final int BATCH_SIZE = 1000;
+    /**
+     * Redis位图最大长度 2^32
+     */
+    private static final long MAX_BITS = 1L << 32;
+    /**
+     * 重建锁过期时间, 单位秒; 重建期间每批续期
+     */
+    private static final long REBUILD_LOCK_SECONDS = 60L;
+
+    private final RedisService redisService;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final String name;
+    /**
+     * 过滤器key, 使用hash tag保证与重建key在同一slot
+     */
+    private final String key;
+    private final String rebuildKey;
+    /**
+     * 重建锁, 同一时间只有一个节点重建
+     */
+    private final String rebuildLockKey;
+    private final long bitSize;
+    private final int hashCount;
+
+    public RedisBloomFilter(RedisService redisService, RedisTemplate<String, Object> redisTemplate,
+                            String name, long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("预期数量必须大于0: " + expectedInsertions);
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("误判率须在 (0, 1) 之间: " + fpp);
+        }
+        this.redisService = redisService;
+        this.redisTemplate = redisTemplate;
+        this.name = name;
+        this.key = KEY_PREFIX + "{" + name + "}";
+        this.rebuildKey = key + ":rebuild";
+        this.rebuildLockKey = key + ":rebuild:lock";
+        this.bitSize = Math.min(MAX_BITS, (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * 写入单个元素
+     */
+    public void add(Object value) {
+        addAll(Collections.singletonList(value));
+    }
+
+    /**
+     * 批量写入, 每 {@value BATCH_SIZE} 个元素一次往返
+     */
+    public void addAll(Collection<?> values) {
+        List<Object> offsets = new ArrayList<>(Math.min(values.size(), BATCH_SIZE) * hashCount);
+        int count = 0;
+        for (Object value : values) {
+            for (long offset : offsets(value)) {
+                offsets.add(offset);
+            }
+            if (++count % BATCH_SIZE == 0) {
+                redisService.execute(RedisScripts.BLOOM_ADD, Arrays.asList(key, rebuildKey), offsets.toArray());
+                offsets.clear();
+            }
+        }
+        if (!offsets.isEmpty()) {
+            redisService.execute(RedisScripts.BLOOM_ADD, Arrays.asList(key, rebuildKey), offsets.toArray());
+        }
+    }
+
+    /**
+     * 判断元素是否可能存在; 返回false时一定不存在
+     */
+    public boolean mightContain(Object value) {
+        return mightContainAll(Collections.singletonList(value)).get(0);
+    }
+
+    /**
+     * 批量判断, 一次往返; 结果顺序与 values 一致.
+     * 过滤器不存在时(未预加载、被删除或淘汰)全部返回true, 放行到数据库, 避免把存在的数据判为不存在
+     */
+    public List<Boolean> mightContainAll(List<?> values) {
+        if (values.isEmpty()) {
+            return new ArrayList<>();
+        }
+        byte[] rawKey = rawKey(key);
+        List<Object> bits = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().exists(rawKey);
+            RedisStringCommands commands = connection.stringCommands();
+            for (Object value : values) {
+                for (long offset : offsets(value)) {
+                    commands.getBit(rawKey, offset);
+                }
+            }
+            return null;
+        });
+
+        List<Boolean> result = new ArrayList<>(values.size());
+        if (!Boolean.TRUE.equals(bits.get(0))) {
+            log.warn("===[RedisBloomFilter][mightContainAll] 过滤器不存在, 全部放行: {}", name);
+            for (int i = 0; i < values.size(); i++) {
+                result.add(true);
+            }
+            return result;
+        }
+        for (int i = 0; i < values.size(); i++) {
+            boolean contain = true;
+            // 第一个结果为 EXISTS
+            for (int j = i * hashCount + 1; j <= (i + 1) * hashCount && contain; j++) {
+                contain = Boolean.TRUE.equals(bits.get(j));
+            }
+            result.add(contain);
+        }
+        return result;
+    }
+
+    /**
+     * 从数据库批量预加载, 查询结果第一列作为元素
+     */
+    public void preload(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        List<Object> batch = new ArrayList<>(BATCH_SIZE);
+        jdbcTemplate.query(sql, rs -> {
+            batch.add(rs.getObject(1));
+            if (batch.size() >= BATCH_SIZE) {
+                addAll(batch);
+                batch.clear();
+            }
+        }, args);
+        if (!batch.isEmpty()) {
+            addAll(batch);
+        }
+    }
+
+    /**
+     * 不停机重建: 先写入新位图, 完成后原子替换旧过滤器;
+     * 重建期间通过 {@link #add(Object)} 写入的元素会同时写入新位图, 不会丢失.
+     * 通过 SET NX 锁保证同一时间只有一个节点重建, 其他节点直接返回false; 重建中锁丢失时放弃本次重建并抛出异常
+     *
+     * @return 是否由本节点完成重建
+     */
+    public boolean rebuild(JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        String token = IdUtil.fastSimpleUUID();
+        if (!Boolean.TRUE.equals(redisService.setIfAbsent(rebuildLockKey, token, REBUILD_LOCK_SECONDS))) {
+            log.info("===[RedisBloomFilter][rebuild] 其他节点正在重建: {}", name);
+            return false;
+        }
+        try {
+            doRebuild(token, jdbcTemplate, sql, args);
+            return true;
+        } finally {
+            redisService.compareAndDelete(rebuildLockKey, token);
+        }
+    }
+
+    private void doRebuild(String token, JdbcTemplate jdbcTemplate, String sql, Object... args) {
+        byte[] rawRebuildKey = rawKey(rebuildKey);
+        // 预分配位图, 使重建期间的新增写入能识别到重建中的过滤器
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.keyCommands().del(rawRebuildKey);
+            connection.stringCommands().setBit(rawRebuildKey, bitSize - 1, false);
+            return null;
+        });
+
+        List<Object> batch = new ArrayList<>(BATCH_SIZE);
+        jdbcTemplate.query(sql, rs -> {
+            batch.add(rs.getObject(1));
+            if (batch.size() >= BATCH_SIZE) {
+                setBits(rawRebuildKey, batch);
+                batch.clear();
+                renewRebuildLock(token);
+            }
+        }, args);
+        if (!batch.isEmpty()) {
+            setBits(rawRebuildKey, batch);
+        }
+
+        renewRebuildLock(token);
+        redisTemplate.rename(rebuildKey, key);
+        log.info("===[RedisBloomFilter][rebuild] 重建完成: {}", name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 续期重建锁; 锁已过期或被其他节点持有时中止重建, 不替换旧过滤器
+     */
+    private void renewRebuildLock(String token) {
+        if (!Boolean.TRUE.equals(redisService.compareAndExpire(rebuildLockKey, token, REBUILD_LOCK_SECONDS))) {
+            throw new IllegalStateException("布隆过滤器重建锁已丢失, 放弃重建: " + name);
+        }
+    }
+
+    private void setBits(byte[] rawKey, List<Object> values) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisStringCommands commands = connection.stringCommands();
+            for (Object value : values) {
+                for (long offset : offsets(value)) {
+                    commands.setBit(rawKey, offset, true);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 双重哈希计算位偏移, 与 Guava BloomFilter 的 MURMUR128_MITZ_64 策略相同
+     */
+    private long[] offsets(Object value) {
+        byte[] hash = Hashing.murmur3_128().hashString(String.valueOf(value), StandardCharsets.UTF_8).asBytes();
+        long hash1 = Longs.fromBytes(hash[7], hash[6], hash[5], hash[4], hash[3], hash[2], hash[1], hash[0]);
+        long hash2 = Longs.fromBytes(hash[15], hash[14], hash[13], hash[12], hash[11], hash[10], hash[9], hash[8]);
+
+        long[] offsets = new long[hashCount];
+        long combinedHash = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            offsets[i] = (combinedHash & Long.MAX_VALUE) % bitSize;
+            combinedHash += hash2;
+        }
+        return offsets;
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+}
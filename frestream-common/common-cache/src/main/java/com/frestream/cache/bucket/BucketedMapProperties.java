@@ -0,0 +1,38 @@
+package com.frestream.cache.bucket;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @description: 分桶Map配置
+ *
+ * @author: TJ
+ * @date:  2022-09-21
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.bucket")
+public class BucketedMapProperties {
+
+    /**
+     * 名称 -> 分桶参数
+     */
+    private Map<String, Bucket> maps = new LinkedHashMap<>();
+
+    @Data
+    public static class Bucket {
+
+        /**
+         * 预期元素数量
+         */
+        private long expectedSize = 1000000L;
+        /**
+         * 每个桶的平均元素个数, 须小于Redis的 hash-max-listpack-entries(旧版本为 hash-max-ziplist-entries, 默认128)
+         */
+        private int bucketSize = 100;
+    }
+}
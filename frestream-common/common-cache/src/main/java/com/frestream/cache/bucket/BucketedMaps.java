@@ -0,0 +1,50 @@
+package com.frestream.cache.bucket;
+
+import com.frestream.cache.redis.RedisService;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @description: 按名称获取分桶Map, 参数取自 frestream.cache.bucket.maps 配置
+ *
+ * @author: TJ
+ * @date:  2022-09-21
+ **/
+@Component
+public class BucketedMaps {
+
+    private final RedisService redisService;
+    private final BucketedMapProperties properties;
+    private final Map<String, RedisBucketedMap> maps = new ConcurrentHashMap<>();
+
+    public BucketedMaps(RedisService redisService, BucketedMapProperties properties) {
+        this.redisService = redisService;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取已配置的分桶Map
+     */
+    public RedisBucketedMap get(String name) {
+        return maps.computeIfAbsent(name, n -> {
+            BucketedMapProperties.Bucket bucket = properties.getMaps().get(n);
+            if (bucket == null) {
+                throw new IllegalArgumentException("分桶Map未配置: " + n);
+            }
+            return new RedisBucketedMap(redisService, n, bucketCount(bucket.getExpectedSize(), bucket.getBucketSize()));
+        });
+    }
+
+    /**
+     * 获取分桶Map, 未配置时按指定参数创建
+     */
+    public RedisBucketedMap get(String name, long expectedSize, int bucketSize) {
+        return maps.computeIfAbsent(name, n -> new RedisBucketedMap(redisService, n, bucketCount(expectedSize, bucketSize)));
+    }
+
+    private static int bucketCount(long expectedSize, int bucketSize) {
+        return (int) Math.max(1L, (expectedSize + bucketSize - 1) / Math.max(1, bucketSize));
+    }
+}
@@ -0,0 +1,195 @@
+package com.frestream.cache.bucket;
+
+import cn.hutool.core.convert.Convert;
+import com.frestream.cache.redis.RedisService;
+import com.google.common.hash.Hashing;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * @description:
+ *   分桶Map: 按id哈希把大量小对象分散到固定个数的Hash中, 每个Hash元素较少时Redis使用紧凑的listpack(ziplist)编码,
+ *   相比每个id一个顶层String key可大幅节省内存.
+ *   桶个数确定后不能修改, 否则id会映射到其他桶; 单项不支持过期时间.
+ *   注意: 只有元素个数不超过 hash-max-listpack-entries (默认128) 且每个值不超过 hash-max-listpack-value (默认64字节) 时才是紧凑编码,
+ *   任一值超出后整个桶转为hashtable, 节省的内存随之消失. 默认的JSON序列化会为非final类型加上 @class 类名, 对象值很容易超过64字节,
+ *   适合存放数字、短字符串等小值; 存放对象时应按序列化后的长度调大 hash-max-listpack-value, 并据此选择桶个数
+ *
+ * @author: TJ
+ * @date:  2022-09-21
+ **/
+@Slf4j(topic = "common-cache-RedisBucketedMap")
+public class RedisBucketedMap {
+
+    private static final String KEY_PREFIX = "bucket:";
+
+    private final RedisService redisService;
+    private final String name;
+    private final int bucketCount;
+
+    public RedisBucketedMap(RedisService redisService, String name, int bucketCount) {
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("桶个数必须大于0: " + bucketCount);
+        }
+        this.redisService = redisService;
+        this.name = name;
+        this.bucketCount = bucketCount;
+    }
+
+    /**
+     * 获取值, 不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(@NonNull String id) {
+        return (T) redisService.hGet(bucketKey(id), id);
+    }
+
+    /**
+     * 获取值并转换为指定类型
+     */
+    public <T> T get(@NonNull String id, @NonNull Class<T> type) {
+        Object value = redisService.hGet(bucketKey(id), id);
+        return value == null ? null : Convert.convert(type, value);
+    }
+
+    /**
+     * 放入值
+     */
+    public void set(@NonNull String id, Object value) {
+        redisService.hSet(bucketKey(id), id, value);
+    }
+
+    /**
+     * 删除值
+     */
+    public void del(@NonNull String id) {
+        redisService.hDel(bucketKey(id), id);
+    }
+
+    /**
+     * 批量获取, 按桶分组后一次往返; 结果顺序与 ids 一致, 不存在的id对应null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> mGet(@NonNull List<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, List<String>> buckets = groupByBucket(ids);
+        List<List<Object>> values = redisService.hMultiGets(buckets);
+
+        Map<String, Object> found = new HashMap<>(ids.size() * 4 / 3 + 1);
+        int i = 0;
+        for (List<String> bucketIds : buckets.values()) {
+            List<Object> bucketValues = values.get(i++);
+            for (int j = 0; j < bucketIds.size(); j++) {
+                found.put(bucketIds.get(j), bucketValues == null ? null : bucketValues.get(j));
+            }
+        }
+        List<T> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            result.add((T) found.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * 批量获取并转换为指定类型
+     */
+    public <T> List<T> mGet(@NonNull List<String> ids, @NonNull Class<T> type) {
+        List<Object> values = mGet(ids);
+        List<T> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            result.add(value == null ? null : Convert.convert(type, value));
+        }
+        return result;
+    }
+
+    /**
+     * 批量放入, 按桶分组后一次往返
+     */
+    public void mSet(@NonNull Map<String, Object> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Object>> buckets = new LinkedHashMap<>();
+        map.forEach((id, value) -> buckets.computeIfAbsent(bucketKey(id), k -> new LinkedHashMap<>()).put(id, value));
+        redisService.hSetMaps(buckets);
+    }
+
+    /**
+     * 批量删除, 按桶分组后一次往返
+     *
+     * @return 删除的个数
+     */
+    public Long mDel(@NonNull Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return 0L;
+        }
+        return redisService.hDels(groupByBucket(ids));
+    }
+
+    /**
+     * 将已有的顶层String key迁移到分桶中; 迁移前应先将写入切换到分桶Map.
+     * 使用 HSETNX 写入, 分桶中已有的值(迁移期间写入的新值)不会被旧值覆盖
+     *
+     * @param pattern      旧key的匹配模式, 如 user:profile:*
+     * @param idOf         从旧key中解析id
+     * @param batchSize    每批个数
+     * @param deleteSource 迁移后是否删除旧key
+     * @return 迁移的个数, 不含分桶中已存在而跳过的项
+     */
+    public long migrate(@NonNull String pattern, @NonNull Function<String, String> idOf, int batchSize, boolean deleteSource) {
+        long[] migrated = {0L};
+        redisService.scan(pattern, batchSize, keys -> {
+            List<Object> values = redisService.mGet(keys);
+            Map<String, Object> map = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+            List<String> moved = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                Object value = values.get(i);
+                if (value != null) {
+                    map.put(idOf.apply(keys.get(i)), value);
+                    moved.add(keys.get(i));
+                }
+            }
+            if (map.isEmpty()) {
+                return;
+            }
+            Map<String, Map<String, Object>> buckets = new LinkedHashMap<>();
+            map.forEach((id, value) -> buckets.computeIfAbsent(bucketKey(id), k -> new LinkedHashMap<>()).put(id, value));
+            migrated[0] += redisService.hSetMapsIfAbsent(buckets);
+            if (deleteSource) {
+                redisService.mDel(moved);
+            }
+        });
+        log.info("===[RedisBucketedMap][migrate] 迁移完成: {} -> {}, 共 {} 个", pattern, name, migrated[0]);
+        return migrated[0];
+    }
+
+    /**
+     * id所在桶的key
+     */
+    public String bucketKey(@NonNull String id) {
+        int hash = Hashing.murmur3_32_fixed().hashString(id, StandardCharsets.UTF_8).asInt();
+        return KEY_PREFIX + name + ":" + Math.floorMod(hash, bucketCount);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    private Map<String, List<String>> groupByBucket(Collection<String> ids) {
+        Map<String, List<String>> buckets = new LinkedHashMap<>();
+        for (String id : ids) {
+            buckets.computeIfAbsent(bucketKey(id), k -> new ArrayList<>()).add(id);
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,411 @@
+package com.frestream.cache.codec;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DatabindContext;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.impl.ClassNameIdResolver;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @description:
+ *   紧凑二进制 value 序列化: 1字节头 + 类型id(varint) + Smile二进制内容, 超过阈值时整体LZ4压缩;
+ *   根对象的类型只记录在头中, 内容不再写类型信息. 与 GenericJackson2JsonRedisSerializer 相同, 嵌套的非final类型写入 @class,
+ *   List&lt;UserDTO&gt; 等嵌套元素按原类型还原; 已注册的类型写为类型id, 未注册的才写类名, 重复的类名通过Smile共享字符串只写一次.
+ *   Integer/Long/Double 写为ASCII十进制文本, 与 INCR/INCRBY/INCRBYFLOAT 兼容; 读取时整数按大小还原为 Integer 或 Long,
+ *   与JSON格式的行为一致. Short/Byte 按注册类型写为Smile, 读取时类型不变.
+ *   头字节不是本格式时按 GenericJackson2JsonRedisSerializer 解析, 兼容切换前写入的JSON数据
+ *
+ * @author: TJ
+ * @date:  2022-09-06
+ **/
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    /**
+     * 历史格式(不含嵌套类型信息): 未压缩 / LZ4压缩, 只读
+     */
+    private static final byte HEADER_RAW_UNTYPED = 0x01;
+    private static final byte HEADER_LZ4_UNTYPED = 0x02;
+    /**
+     * 历史格式(根对象内容中重复写入类名): 未压缩 / LZ4压缩, 只读
+     */
+    private static final byte HEADER_RAW_ROOT_TYPED = 0x03;
+    private static final byte HEADER_LZ4_ROOT_TYPED = 0x04;
+    /**
+     * 未压缩
+     */
+    private static final byte HEADER_RAW = 0x05;
+    /**
+     * LZ4压缩, 头之后为原始长度(varint); 压缩头 = 未压缩头 + 1
+     */
+    private static final byte HEADER_LZ4 = 0x06;
+    /**
+     * 未注册类型, 类型id之后写入类名
+     */
+    private static final int UNREGISTERED_CLASS_ID = 0;
+    /**
+     * 业务自定义类型id起始值, 之前的id保留给内置类型
+     */
+    public static final int USER_CLASS_ID_BEGIN = 64;
+
+    private final ObjectMapper smileMapper;
+    /**
+     * 读取历史格式
+     */
+    private final ObjectMapper untypedMapper;
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+    private final int compressThreshold;
+
+    private final Map<Class<?>, Integer> classToId = new HashMap<>();
+    private final Map<Integer, Class<?>> idToClass = new HashMap<>();
+    /**
+     * 未注册类型的类名缓存
+     */
+    private final Map<String, Class<?>> classNameCache = new ConcurrentHashMap<>();
+
+    public CompactRedisSerializer(RedisCodecProperties properties) {
+        this.compressThreshold = properties.getCompressThreshold();
+        this.untypedMapper = new ObjectMapper(new SmileFactory());
+        this.untypedMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.untypedMapper.findAndRegisterModules();
+        this.smileMapper = new ObjectMapper(new SmileFactory().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES));
+        this.smileMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.smileMapper.findAndRegisterModules();
+        this.smileMapper.setDefaultTyping(new ClassIdTypeResolverBuilder(smileMapper.getPolymorphicTypeValidator())
+                .init(JsonTypeInfo.Id.CLASS, null)
+                .inclusion(JsonTypeInfo.As.PROPERTY));
+
+        register(1, String.class);
+        register(2, Integer.class);
+        register(3, Long.class);
+        register(4, Double.class);
+        register(5, Float.class);
+        register(6, Boolean.class);
+        register(7, BigDecimal.class);
+        register(8, HashMap.class);
+        register(9, LinkedHashMap.class);
+        register(10, ArrayList.class);
+        register(11, HashSet.class);
+        register(12, LinkedHashSet.class);
+        register(13, Short.class);
+        register(14, Byte.class);
+        properties.getClassIds().forEach((id, className) -> {
+            if (id < USER_CLASS_ID_BEGIN) {
+                throw new IllegalArgumentException("类型id须大于等于" + USER_CLASS_ID_BEGIN + ": " + id);
+            }
+            register(id, loadClass(className));
+        });
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (isAsciiNumber(value)) {
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+            out.write(HEADER_RAW);
+            Class<?> type = resolveType(value);
+            if (type != value.getClass()) {
+                value = copyAs(type, value);
+            }
+            Integer id = classToId.get(type);
+            if (id == null) {
+                byte[] name = type.getName().getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, UNREGISTERED_CLASS_ID);
+                writeVarInt(out, name.length);
+                out.write(name);
+            } else {
+                writeVarInt(out, id);
+            }
+            writeRoot(out, type, value);
+
+            byte[] raw = out.toByteArray();
+            if (compressThreshold > 0 && raw.length > compressThreshold) {
+                return compress(raw);
+            }
+            return raw;
+        } catch (IOException e) {
+            throw new SerializationException("紧凑序列化失败: " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        byte header = bytes[0];
+        if (header == HEADER_LZ4 || header == HEADER_LZ4_ROOT_TYPED || header == HEADER_LZ4_UNTYPED) {
+            bytes = decompress(bytes);
+            header = bytes[0];
+        } else if (header != HEADER_RAW && header != HEADER_RAW_ROOT_TYPED && header != HEADER_RAW_UNTYPED) {
+            if (header == '-' || (header >= '0' && header <= '9')) {
+                return parseAsciiNumber(bytes);
+            }
+            // 历史JSON数据
+            return jsonSerializer.deserialize(bytes);
+        }
+        int[] offset = {1};
+        int id = readVarInt(bytes, offset);
+        Class<?> type;
+        if (id == UNREGISTERED_CLASS_ID) {
+            int length = readVarInt(bytes, offset);
+            String className = new String(bytes, offset[0], length, StandardCharsets.UTF_8);
+            offset[0] += length;
+            type = classNameCache.computeIfAbsent(className, this::loadClass);
+        } else {
+            type = idToClass.get(id);
+            if (type == null) {
+                throw new SerializationException("未注册的类型id: " + id);
+            }
+        }
+        try {
+            if (header == HEADER_RAW) {
+                return readRoot(bytes, offset[0], type);
+            }
+            ObjectMapper mapper = header == HEADER_RAW_ROOT_TYPED ? smileMapper : untypedMapper;
+            return mapper.readValue(bytes, offset[0], bytes.length - offset[0], type);
+        } catch (IOException e) {
+            throw new SerializationException("紧凑反序列化失败: " + type.getName(), e);
+        }
+    }
+
+    /**
+     * 按头中记录的类型直接取得序列化器写入根对象, 不经过类型包装, 根对象不写 @class; 嵌套属性仍按默认类型写入类型信息
+     */
+    private void writeRoot(ByteArrayOutputStream out, Class<?> type, Object value) throws IOException {
+        DefaultSerializerProvider provider = ((DefaultSerializerProvider) smileMapper.getSerializerProvider())
+                .createInstance(smileMapper.getSerializationConfig(), smileMapper.getSerializerFactory());
+        try (JsonGenerator generator = smileMapper.getFactory().createGenerator(out)) {
+            provider.findValueSerializer(type, null).serialize(value, generator, provider);
+        }
+    }
+
+    /**
+     * 读取 {@link #writeRoot} 写入的根对象
+     */
+    private Object readRoot(byte[] bytes, int offset, Class<?> type) throws IOException {
+        DeserializationConfig config = smileMapper.getDeserializationConfig();
+        try (JsonParser parser = smileMapper.getFactory().createParser(bytes, offset, bytes.length - offset)) {
+            config.initialize(parser);
+            DefaultDeserializationContext context = ((DefaultDeserializationContext) smileMapper.getDeserializationContext())
+                    .createInstance(config, parser, smileMapper.getInjectableValues());
+            parser.nextToken();
+            return context.findContextualValueDeserializer(smileMapper.constructType(type), null)
+                    .deserialize(parser, context);
+        }
+    }
+
+    private void register(int id, Class<?> type) {
+        if (idToClass.containsKey(id)) {
+            throw new IllegalArgumentException("类型id重复: " + id);
+        }
+        idToClass.put(id, type);
+        classToId.put(type, id);
+    }
+
+    /**
+     * 未注册的集合类型按通用实现记录, 避免 Arrays$ArrayList 等无法实例化的类型
+     */
+    private Class<?> resolveType(Object value) {
+        Class<?> type = value.getClass();
+        if (classToId.containsKey(type)) {
+            return type;
+        }
+        if (value instanceof List) {
+            return ArrayList.class;
+        }
+        if (value instanceof Set) {
+            return LinkedHashSet.class;
+        }
+        if (value instanceof Map) {
+            return LinkedHashMap.class;
+        }
+        return type;
+    }
+
+    /**
+     * 复制为记录的集合类型, 使内容中的类型信息与头中的类型一致
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object copyAs(Class<?> type, Object value) {
+        if (type == ArrayList.class) {
+            return new ArrayList<>((Collection) value);
+        }
+        if (type == LinkedHashSet.class) {
+            return new LinkedHashSet<>((Collection) value);
+        }
+        if (type == LinkedHashMap.class) {
+            return new LinkedHashMap<>((Map) value);
+        }
+        return value;
+    }
+
+    /**
+     * Integer、Long 与有限的 Double 写为ASCII文本; Short、Byte、Float、BigDecimal 仍写为Smile以保留类型
+     */
+    private static boolean isAsciiNumber(Object value) {
+        if (value instanceof Integer || value instanceof Long) {
+            return true;
+        }
+        return value instanceof Double && Double.isFinite((Double) value);
+    }
+
+    /**
+     * 解析ASCII数字: 整数在int范围内返回 Integer, 否则返回 Long; 含小数点或指数时返回 Double
+     */
+    private static Object parseAsciiNumber(byte[] bytes) {
+        String text = new String(bytes, StandardCharsets.US_ASCII);
+        try {
+            for (byte b : bytes) {
+                if (b == '.' || b == 'e' || b == 'E') {
+                    return Double.valueOf(text);
+                }
+            }
+            long value = Long.parseLong(text);
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new SerializationException("数字格式错误: " + text, e);
+        }
+    }
+
+    private byte[] compress(byte[] raw) {
+        // 头字节不参与压缩
+        int length = raw.length - 1;
+        byte[] compressed = new byte[6 + compressor.maxCompressedLength(length)];
+        compressed[0] = (byte) (raw[0] + 1);
+        int offset = writeVarInt(compressed, 1, length);
+        int size = compressor.compress(raw, 1, length, compressed, offset);
+        if (offset + size >= raw.length) {
+            return raw;
+        }
+        return Arrays.copyOf(compressed, offset + size);
+    }
+
+    private byte[] decompress(byte[] bytes) {
+        int[] offset = {1};
+        int length = readVarInt(bytes, offset);
+        byte[] raw = new byte[length + 1];
+        raw[0] = (byte) (bytes[0] - 1);
+        decompressor.decompress(bytes, offset[0], raw, 1, length);
+        return raw;
+    }
+
+    private Class<?> loadClass(String className) {
+        try {
+            return ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("类型不存在: " + className, e);
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int writeVarInt(byte[] dest, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            dest[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dest[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readVarInt(byte[] bytes, int[] offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[offset[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * 非final类型写入类型信息(同 DefaultTyping.NON_FINAL), 类型id由 {@link ClassIdResolver} 生成
+     */
+    private class ClassIdTypeResolverBuilder extends ObjectMapper.DefaultTypeResolverBuilder {
+
+        private static final long serialVersionUID = 1L;
+
+        private ClassIdTypeResolverBuilder(PolymorphicTypeValidator validator) {
+            super(ObjectMapper.DefaultTyping.NON_FINAL, validator);
+        }
+
+        @Override
+        protected TypeIdResolver idResolver(MapperConfig<?> config, JavaType baseType, PolymorphicTypeValidator subtypeValidator,
+                                            Collection<NamedType> subtypes, boolean forSer, boolean forDeser) {
+            return new ClassIdResolver(baseType, config.getTypeFactory(), subtypeValidator);
+        }
+    }
+
+    /**
+     * 已注册的类型写为十进制类型id, 未注册的按类名; 类名不会以数字开头, 读取时据此区分
+     */
+    private class ClassIdResolver extends ClassNameIdResolver {
+
+        private ClassIdResolver(JavaType baseType, TypeFactory typeFactory, PolymorphicTypeValidator validator) {
+            super(baseType, typeFactory, validator);
+        }
+
+        @Override
+        protected String _idFrom(Object value, Class<?> cls, TypeFactory typeFactory) {
+            Integer id = classToId.get(cls);
+            return id == null ? super._idFrom(value, cls, typeFactory) : id.toString();
+        }
+
+        @Override
+        public JavaType typeFromId(DatabindContext context, String id) throws IOException {
+            if (!id.isEmpty() && Character.isDigit(id.charAt(0))) {
+                Class<?> type = idToClass.get(Integer.valueOf(id));
+                if (type == null) {
+                    throw new SerializationException("未注册的类型id: " + id);
+                }
+                return context.getTypeFactory().constructSpecializedType(_baseType, type);
+            }
+            return super.typeFromId(context, id);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.frestream.cache.codec;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @description: Redis value 序列化配置
+ *
+ * @author: TJ
+ * @date:  2022-09-06
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.codec")
+public class RedisCodecProperties {
+
+    /**
+     * 序列化方式: json(默认, GenericJackson2JsonRedisSerializer) / compact(紧凑二进制)
+     */
+    private String type = "json";
+    /**
+     * 序列化后字节数超过该值时进行压缩, 小于等于0不压缩
+     */
+    private int compressThreshold = 1024;
+    /**
+     * 类型注册表: 类型id -> 全限定类名; id须大于等于 {@link CompactRedisSerializer#USER_CLASS_ID_BEGIN}, 且各节点保持一致
+     */
+    private Map<Integer, String> classIds = new LinkedHashMap<>();
+
+    public boolean isCompact() {
+        return "compact".equalsIgnoreCase(type);
+    }
+}
@@ -0,0 +1,30 @@
+package com.frestream.cache.counter;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @description: 计数器本地聚合配置
+ *
+ * @author: TJ
+ * @date:  2022-09-20
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.counter")
+public class CounterProperties {
+
+    /**
+     * 本地增量刷入Redis的周期, 即宕机时最多丢失的时间窗口, 单位毫秒; 小于等于0时每次直接写入Redis
+     */
+    private long flushIntervalMillis = 200L;
+    /**
+     * 待刷入的key个数达到该值时立即触发一次刷入
+     */
+    private int maxPendingKeys = 10000;
+    /**
+     * 每次pipeline包含的key个数
+     */
+    private int flushBatchSize = 500;
+}
@@ -0,0 +1,223 @@
+package com.frestream.cache.counter;
+
+import cn.hutool.core.convert.Convert;
+import com.frestream.cache.redis.RedisService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @description:
+ *   写后聚合计数器: 增量先累加到本地 LongAdder, 周期性(及关闭时)通过pipeline批量 INCRBY 到Redis,
+ *   适用于浏览量、调用次数等高频且允许短时间延迟的计数; 需要精确返回值时使用 RedisService.incr.
+ *   刷入为至少一次语义: pipeline失败时只重试没有成功回复的key, 但连接中断等无法得知回复的情况下整批重试,
+ *   已执行的 INCRBY 可能被重复计入
+ *
+ * @author: TJ
+ * @date:  2022-09-20
+ **/
+@Slf4j(topic = "common-cache-WriteBehindCounter")
+@Component
+public class WriteBehindCounter {
+
+    private final RedisService redisService;
+    private final CounterProperties properties;
+    /**
+     * 待刷入的本地增量
+     */
+    private final ConcurrentMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+    /**
+     * 上一轮因增量为0被移除的计数, 下一轮再刷入一次, 避免移除瞬间并发写入的增量丢失; 仅在 flush 中访问
+     */
+    private List<Map.Entry<String, LongAdder>> retired = new ArrayList<>();
+    /**
+     * 是否已提交提前刷入任务
+     */
+    private final AtomicBoolean flushSubmitted = new AtomicBoolean();
+
+    private ScheduledExecutorService flushExecutor;
+
+    public WriteBehindCounter(RedisService redisService, CounterProperties properties) {
+        this.redisService = redisService;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.getFlushIntervalMillis() > 0) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("counter-flush-%d").setDaemon(true).build());
+            flushExecutor.scheduleWithFixedDelay(this::flushQuietly, properties.getFlushIntervalMillis(),
+                    properties.getFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 关闭时刷入剩余增量
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flushQuietly();
+    }
+
+    /**
+     * 递增
+     *
+     * @param key   键
+     * @param delta 要增加的数量
+     */
+    public void incr(@NonNull String key, long delta) {
+        if (delta < 0) {
+            throw new RuntimeException("递增因子必须大于0");
+        }
+        add(key, delta);
+    }
+
+    /**
+     * 递减
+     *
+     * @param key   键
+     * @param delta 要减少的数量
+     */
+    public void decr(@NonNull String key, long delta) {
+        if (delta < 0) {
+            throw new RuntimeException("递减因子必须大于0");
+        }
+        add(key, -delta);
+    }
+
+    /**
+     * 获取当前值: Redis中的值 + 本节点尚未刷入的增量
+     */
+    public long get(@NonNull String key) {
+        Object remote = redisService.get(key);
+        return Convert.toLong(remote, 0L) + pendingDelta(key);
+    }
+
+    /**
+     * 获取本节点尚未刷入的增量
+     */
+    public long pendingDelta(@NonNull String key) {
+        LongAdder adder = pending.get(key);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    /**
+     * 将本地增量刷入Redis; 刷入失败(或无法确认成功)的增量放回本地, 下次重试
+     */
+    public synchronized void flush() {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> entry : retired) {
+            drain(deltas, entry.getKey(), entry.getValue());
+        }
+        retired = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+            LongAdder adder = entry.getValue();
+            if (adder.sum() == 0L) {
+                if (pending.remove(entry.getKey(), adder)) {
+                    retired.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), adder));
+                }
+            } else {
+                drain(deltas, entry.getKey(), adder);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int batchSize = Math.max(1, properties.getFlushBatchSize());
+        Map<String, Long> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= batchSize) {
+                flushBatch(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
+        }
+    }
+
+    private void add(String key, long delta) {
+        if (properties.getFlushIntervalMillis() <= 0) {
+            redisService.mIncr(Collections.singletonMap(key, delta));
+            return;
+        }
+        LongAdder adder = pending.get(key);
+        if (adder == null) {
+            adder = pending.computeIfAbsent(key, k -> new LongAdder());
+        }
+        adder.add(delta);
+
+        if (pending.size() >= properties.getMaxPendingKeys() && flushSubmitted.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushSubmitted.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                flushSubmitted.set(false);
+            }
+        }
+    }
+
+    /**
+     * 取出计数当前的增量; 通过减去已取出的值而非重置, 保证并发写入不丢失
+     */
+    private void drain(Map<String, Long> deltas, String key, LongAdder adder) {
+        long delta = adder.sum();
+        if (delta != 0L) {
+            adder.add(-delta);
+            deltas.merge(key, delta, Long::sum);
+        }
+    }
+
+    private void flushBatch(Map<String, Long> batch) {
+        try {
+            redisService.mIncr(batch);
+        } catch (RedisPipelineException e) {
+            // 有成功回复的 INCRBY 已执行, 只重试其余的key; 回复顺序与 batch 的遍历顺序一致
+            List<Object> results = e.getPipelineResult();
+            int index = 0;
+            int retry = 0;
+            for (Map.Entry<String, Long> entry : batch.entrySet()) {
+                Object result = index < results.size() ? results.get(index) : null;
+                index++;
+                if (!(result instanceof Long)) {
+                    retry(entry.getKey(), entry.getValue());
+                    retry++;
+                }
+            }
+            log.error("===[WriteBehindCounter][flush] 刷入Redis部分失败, {} 个key待重试", retry, e);
+        } catch (Exception e) {
+            log.error("===[WriteBehindCounter][flush] 刷入Redis失败, {} 个key待重试", batch.size(), e);
+            batch.forEach(this::retry);
+        }
+    }
+
+    private void retry(String key, long delta) {
+        pending.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("===[WriteBehindCounter][flush] 刷入失败", e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.frestream.cache.delay;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @description: 延迟队列配置
+ *
+ * @author: TJ
+ * @date:  2022-09-22
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.delay-queue")
+public class DelayQueueProperties {
+
+    /**
+     * 每个队列的分区数, 分区分布在不同的slot上; 上线后修改会导致已入队任务无法按id确认
+     */
+    private int partitions = 4;
+    /**
+     * 每次从一个分区领取的最多任务数
+     */
+    private int claimBatchSize = 100;
+    /**
+     * 可见性超时, 领取后超过该时间未确认的任务重新投递, 单位毫秒
+     */
+    private long visibilityTimeoutMillis = 30000L;
+    /**
+     * 处理失败后重新执行的延迟, 单位毫秒
+     */
+    private long retryDelayMillis = 5000L;
+    /**
+     * 没有到期任务时的轮询间隔, 单位毫秒
+     */
+    private long pollIntervalMillis = 200L;
+    /**
+     * 每个监听队列的任务处理线程数
+     */
+    private int workerThreads = 4;
+}
@@ -0,0 +1,32 @@
+package com.frestream.cache.delay;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * @description: 领取到的延迟任务
+ *
+ * @author: TJ
+ * @date:  2022-09-22
+ **/
+@Data
+@Accessors(chain = true)
+public class DelayTask {
+
+    /**
+     * 队列名称
+     */
+    private String queue;
+    /**
+     * 任务id, 同一队列内唯一
+     */
+    private String id;
+    /**
+     * 任务数据
+     */
+    private Object payload;
+    /**
+     * 到期时间, 毫秒时间戳
+     */
+    private long dueAt;
+}
@@ -0,0 +1,271 @@
+package com.frestream.cache.delay;
+
+import com.frestream.cache.redis.RedisService;
+import com.frestream.cache.script.RedisScripts;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * @description:
+ *   基于zset的延迟队列: 任务按到期时间存入待执行集合, 消费方通过脚本原子地批量领取到期任务并移入执行中集合;
+ *   超过可见性超时未确认的任务会被重新投递(至少一次), 处理方需保证幂等.
+ *   每个队列按任务id哈希分为多个分区, 分区key使用hash tag, 集群下分布在不同slot; 到期时间使用应用节点时间
+ *
+ * @author: TJ
+ * @date:  2022-09-22
+ **/
+@Slf4j(topic = "common-cache-RedisDelayQueue")
+@Component
+public class RedisDelayQueue {
+
+    private static final String KEY_PREFIX = "delay:";
+
+    private final RedisService redisService;
+    private final DelayQueueProperties properties;
+    private final MeterRegistry meterRegistry;
+    /**
+     * 监听队列使用的线程池, 关闭时统一停止
+     */
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+
+    public RedisDelayQueue(RedisService redisService, DelayQueueProperties properties, MeterRegistry meterRegistry) {
+        this.redisService = redisService;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * 入队, 指定延迟时间; 相同id的任务会被覆盖
+     *
+     * @param queue       队列名称
+     * @param id          任务id
+     * @param payload     任务数据
+     * @param delayMillis 延迟时间, 单位毫秒
+     */
+    public void enqueue(@NonNull String queue, @NonNull String id, Object payload, long delayMillis) {
+        enqueueAt(queue, id, payload, System.currentTimeMillis() + Math.max(0L, delayMillis));
+    }
+
+    /**
+     * 入队, 指定到期时间; 相同id的任务会被覆盖
+     *
+     * @param dueAt 到期时间, 毫秒时间戳
+     */
+    public void enqueueAt(@NonNull String queue, @NonNull String id, Object payload, long dueAt) {
+        int partition = partition(id);
+        redisService.execute(RedisScripts.DELAY_ENQUEUE,
+                Arrays.asList(readyKey(queue, partition), inFlightKey(queue, partition), dataKey(queue, partition)),
+                id, dueAt, redisService.rawValue(payload));
+        count(queue, "enqueued", 1);
+    }
+
+    /**
+     * 从指定分区批量领取到期任务, 领取的任务需在可见性超时内 {@link #ack(DelayTask)}
+     *
+     * @param partition 分区, 0 到 partitions - 1
+     * @param limit     最多领取个数
+     */
+    @SuppressWarnings("unchecked")
+    public List<DelayTask> claim(@NonNull String queue, int partition, int limit) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        List<Object> result = redisService.execute(RedisScripts.DELAY_CLAIM, RedisSerializer.byteArray(),
+                Arrays.asList(readyKey(queue, partition), inFlightKey(queue, partition), dataKey(queue, partition)),
+                now, limit, now + properties.getVisibilityTimeoutMillis());
+        Timer.builder("frestream.delay.queue.claim").tag("queue", queue).register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (result == null || result.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        count(queue, "redelivered", (Long) result.get(0));
+        List<DelayTask> tasks = new ArrayList<>((result.size() - 1) / 3);
+        Timer lag = Timer.builder("frestream.delay.queue.lag").tag("queue", queue).register(meterRegistry);
+        for (int i = 1; i + 2 < result.size(); i += 3) {
+            long dueAt = (long) Double.parseDouble(new String((byte[]) result.get(i + 1), StandardCharsets.UTF_8));
+            byte[] payload = (byte[]) result.get(i + 2);
+            tasks.add(new DelayTask()
+                    .setQueue(queue)
+                    .setId(new String((byte[]) result.get(i), StandardCharsets.UTF_8))
+                    .setDueAt(dueAt)
+                    .setPayload(payload == null ? null : redisService.value(payload)));
+            lag.record(Math.max(0L, now - dueAt), TimeUnit.MILLISECONDS);
+        }
+        count(queue, "claimed", tasks.size());
+        return tasks;
+    }
+
+    /**
+     * 依次从各分区批量领取到期任务
+     *
+     * @param limit 每个分区最多领取个数
+     */
+    public List<DelayTask> poll(@NonNull String queue, int limit) {
+        List<DelayTask> tasks = new ArrayList<>();
+        for (int partition = 0; partition < partitions(); partition++) {
+            tasks.addAll(claim(queue, partition, limit));
+        }
+        return tasks;
+    }
+
+    /**
+     * 确认任务完成
+     *
+     * @return 是否确认成功; 任务已超时重新投递时返回false
+     */
+    public boolean ack(@NonNull DelayTask task) {
+        return ack(task.getQueue(), task.getId());
+    }
+
+    /**
+     * 确认任务完成
+     */
+    public boolean ack(@NonNull String queue, @NonNull String id) {
+        int partition = partition(id);
+        Long count = redisService.execute(RedisScripts.DELAY_ACK,
+                Arrays.asList(inFlightKey(queue, partition), dataKey(queue, partition)), id);
+        boolean acked = count != null && count > 0;
+        if (acked) {
+            count(queue, "acked", 1);
+        }
+        return acked;
+    }
+
+    /**
+     * 执行中的任务延迟后重新执行
+     *
+     * @param delayMillis 延迟时间, 单位毫秒
+     * @return 是否成功; 任务已不在执行中时返回false
+     */
+    public boolean retry(@NonNull String queue, @NonNull String id, long delayMillis) {
+        int partition = partition(id);
+        Long count = redisService.execute(RedisScripts.DELAY_RETRY,
+                Arrays.asList(readyKey(queue, partition), inFlightKey(queue, partition)),
+                id, System.currentTimeMillis() + Math.max(0L, delayMillis));
+        boolean retried = count != null && count > 0;
+        if (retried) {
+            count(queue, "retried", 1);
+        }
+        return retried;
+    }
+
+    /**
+     * 监听队列: 后台轮询各分区领取到期任务, 交给处理线程执行;
+     * 处理成功后自动确认, 抛出异常时按 retryDelayMillis 延迟重试. 处理线程繁忙时由轮询线程执行, 暂停领取
+     *
+     * @param queue   队列名称
+     * @param handler 任务处理
+     */
+    public void listen(@NonNull String queue, @NonNull Consumer<DelayTask> handler) {
+        int threads = Math.max(1, properties.getWorkerThreads());
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getClaimBatchSize())),
+                new ThreadFactoryBuilder().setNameFormat("delay-queue-" + queue + "-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("delay-queue-poll-" + queue).setDaemon(true).build());
+        executors.add(workers);
+        executors.add(poller);
+        poller.scheduleWithFixedDelay(() -> pollLoop(queue, handler, workers),
+                0L, properties.getPollIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 持续领取直到各分区都没有积压, 之后等待下一个轮询周期
+     */
+    private void pollLoop(String queue, Consumer<DelayTask> handler, ExecutorService workers) {
+        int limit = Math.max(1, properties.getClaimBatchSize());
+        boolean backlog = true;
+        while (backlog && !Thread.currentThread().isInterrupted()) {
+            backlog = false;
+            for (int partition = 0; partition < partitions(); partition++) {
+                List<DelayTask> tasks;
+                try {
+                    tasks = claim(queue, partition, limit);
+                } catch (Exception e) {
+                    log.error("===[RedisDelayQueue][poll] 领取任务失败: {}#{}", queue, partition, e);
+                    return;
+                }
+                for (DelayTask task : tasks) {
+                    try {
+                        workers.execute(() -> handle(task, handler));
+                    } catch (RejectedExecutionException e) {
+                        // 已关闭, 未执行的任务超时后重新投递
+                        return;
+                    }
+                }
+                backlog |= tasks.size() >= limit;
+            }
+        }
+    }
+
+    private void handle(DelayTask task, Consumer<DelayTask> handler) {
+        try {
+            handler.accept(task);
+        } catch (Exception e) {
+            log.error("===[RedisDelayQueue][handle] 任务处理失败, {}ms后重试: {}#{}",
+                    properties.getRetryDelayMillis(), task.getQueue(), task.getId(), e);
+            retryQuietly(task);
+            return;
+        }
+        try {
+            ack(task);
+        } catch (Exception e) {
+            log.error("===[RedisDelayQueue][handle] 任务确认失败, 超时后将重新投递: {}#{}", task.getQueue(), task.getId(), e);
+        }
+    }
+
+    private void retryQuietly(DelayTask task) {
+        try {
+            retry(task.getQueue(), task.getId(), properties.getRetryDelayMillis());
+        } catch (Exception e) {
+            log.error("===[RedisDelayQueue][retry] 重新排队失败, 超时后将重新投递: {}#{}", task.getQueue(), task.getId(), e);
+        }
+    }
+
+    private void count(String queue, String event, long amount) {
+        if (amount > 0) {
+            meterRegistry.counter("frestream.delay.queue.tasks", "queue", queue, "event", event).increment(amount);
+        }
+    }
+
+    private int partitions() {
+        return Math.max(1, properties.getPartitions());
+    }
+
+    private int partition(String id) {
+        int hash = Hashing.murmur3_32_fixed().hashString(id, StandardCharsets.UTF_8).asInt();
+        return Math.floorMod(hash, partitions());
+    }
+
+    private static String readyKey(String queue, int partition) {
+        return KEY_PREFIX + "{" + queue + ":" + partition + "}:ready";
+    }
+
+    private static String inFlightKey(String queue, int partition) {
+        return KEY_PREFIX + "{" + queue + ":" + partition + "}:inflight";
+    }
+
+    private static String dataKey(String queue, int partition) {
+        return KEY_PREFIX + "{" + queue + ":" + partition + "}:data";
+    }
+}
@@ -0,0 +1,24 @@
+package com.frestream.cache.hotkey;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * @description: 热点key及其估算访问次数
+ *
+ * @author: TJ
+ * @date:  2022-09-16
+ **/
+@Data
+@AllArgsConstructor
+public class HotKey {
+
+    /**
+     * 键
+     */
+    private String key;
+    /**
+     * 当前衰减周期内的估算访问次数
+     */
+    private long count;
+}
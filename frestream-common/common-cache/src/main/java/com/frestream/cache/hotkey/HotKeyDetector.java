@@ -0,0 +1,194 @@
+package com.frestream.cache.hotkey;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * @description:
+ *   热点key探测: 采样访问计入 Count-Min Sketch, 计数按周期衰减;
+ *   估算次数超过阈值的key记为热点, 读取时使用短时间过期的本地副本, 分担单个Redis分片的压力
+ *
+ * @author: TJ
+ * @date:  2022-09-16
+ **/
+@Component
+public class HotKeyDetector {
+
+    /**
+     * 草图行数, 即哈希函数个数
+     */
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+
+    private final HotKeyProperties properties;
+    private final int width;
+    private final AtomicIntegerArray sketch;
+    /**
+     * 当前热点key -> 估算访问次数
+     */
+    private final Map<String, Long> hotKeys = new ConcurrentHashMap<>();
+    /**
+     * 热点key的本地副本
+     */
+    private final Cache<String, Object> values;
+    private final Cache<String, ConcurrentMap<String, Object>> hashes;
+
+    private ScheduledExecutorService decayExecutor;
+
+    public HotKeyDetector(HotKeyProperties properties) {
+        this.properties = properties;
+        this.width = Integer.highestOneBit(Math.max(2, properties.getSketchWidth() - 1)) << 1;
+        this.sketch = new AtomicIntegerArray(DEPTH * width);
+        this.values = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaxHotKeys())
+                .expireAfterWrite(properties.getLocalExpireMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.hashes = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaxHotKeys())
+                .expireAfterWrite(properties.getLocalExpireMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            decayExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("hot-key-decay-%d").setDaemon(true).build());
+            decayExecutor.scheduleAtFixedRate(this::decay, properties.getDecaySeconds(), properties.getDecaySeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (decayExecutor != null) {
+            decayExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 读取String结构缓存: 记录访问, 热点key优先使用本地副本
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        record(key);
+        if (!hotKeys.containsKey(key)) {
+            return loader.get();
+        }
+        Object value = values.getIfPresent(key);
+        if (value != null) {
+            return (T) value;
+        }
+        T loaded = loader.get();
+        if (loaded != null) {
+            values.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 读取Hash结构缓存: 记录访问, 热点key优先使用本地副本
+     */
+    public Object hGet(String key, String item, Supplier<Object> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        record(key);
+        if (!hotKeys.containsKey(key)) {
+            return loader.get();
+        }
+        ConcurrentMap<String, Object> items = hashes.getIfPresent(key);
+        Object value = items == null ? null : items.get(item);
+        if (value != null) {
+            return value;
+        }
+        Object loaded = loader.get();
+        if (loaded != null) {
+            hashes.asMap().computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(item, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 本节点写入时移除本地副本; 其他节点依靠过期时间
+     */
+    public void invalidate(String key) {
+        if (properties.isEnabled() && hotKeys.containsKey(key)) {
+            values.invalidate(key);
+            hashes.invalidate(key);
+        }
+    }
+
+    /**
+     * 按访问次数降序获取热点key
+     *
+     * @param limit 最多返回个数
+     */
+    public List<HotKey> topKeys(int limit) {
+        List<HotKey> result = new ArrayList<>(hotKeys.size());
+        hotKeys.forEach((key, count) -> result.add(new HotKey(key, count)));
+        result.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * 采样记录一次访问, 估算次数达到阈值时记为热点
+     */
+    private void record(String key) {
+        int interval = properties.getSampleInterval();
+        if (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0) {
+            return;
+        }
+        int hash = key.hashCode();
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, sketch.incrementAndGet(index(hash, i)));
+        }
+        long estimate = (long) min * Math.max(1, interval);
+        if (estimate >= properties.getThreshold()
+                && (hotKeys.size() < properties.getMaxHotKeys() || hotKeys.containsKey(key))) {
+            hotKeys.put(key, estimate);
+        }
+    }
+
+    /**
+     * 计数减半, 并移除不再达到阈值的热点key
+     */
+    private void decay() {
+        for (int i = 0; i < sketch.length(); i++) {
+            sketch.set(i, sketch.get(i) >>> 1);
+        }
+        int interval = Math.max(1, properties.getSampleInterval());
+        hotKeys.replaceAll((key, count) -> estimate(key) * interval);
+        hotKeys.values().removeIf(count -> count < properties.getThreshold());
+    }
+
+    private long estimate(String key) {
+        int hash = key.hashCode();
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, sketch.get(index(hash, i)));
+        }
+        return min;
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+}
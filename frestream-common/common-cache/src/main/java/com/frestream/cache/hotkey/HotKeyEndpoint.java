@@ -0,0 +1,32 @@
+package com.frestream.cache.hotkey;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * @description: 热点key监控端点: /actuator/hotkeys?limit=20
+ *
+ * @author: TJ
+ * @date:  2022-09-16
+ **/
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeyEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final HotKeyDetector hotKeyDetector;
+
+    public HotKeyEndpoint(HotKeyDetector hotKeyDetector) {
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    @ReadOperation
+    public List<HotKey> hotKeys(@Nullable Integer limit) {
+        return hotKeyDetector.topKeys(limit == null ? DEFAULT_LIMIT : limit);
+    }
+}
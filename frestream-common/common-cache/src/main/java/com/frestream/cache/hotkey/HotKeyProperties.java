@@ -0,0 +1,46 @@
+package com.frestream.cache.hotkey;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @description: 热点key探测配置
+ *
+ * @author: TJ
+ * @date:  2022-09-16
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.hot-key")
+public class HotKeyProperties {
+
+    /**
+     * 是否开启热点key探测
+     */
+    private boolean enabled = false;
+    /**
+     * 采样间隔, 每N次访问采样一次
+     */
+    private int sampleInterval = 8;
+    /**
+     * 计数草图宽度, 向上取2的幂
+     */
+    private int sketchWidth = 16384;
+    /**
+     * 计数衰减周期, 每周期计数减半, 单位秒
+     */
+    private long decaySeconds = 10L;
+    /**
+     * 一个衰减周期内估算访问次数达到该值视为热点key
+     */
+    private long threshold = 10000L;
+    /**
+     * 最多记录的热点key个数
+     */
+    private int maxHotKeys = 100;
+    /**
+     * 热点key本地副本过期时间, 单位毫秒
+     */
+    private long localExpireMillis = 1000L;
+}
@@ -0,0 +1,19 @@
+package com.frestream.cache.limit;
+
+/**
+ * @description: 限流算法
+ *
+ * @author: TJ
+ * @date:  2022-09-13
+ **/
+public enum RateLimitAlgorithm {
+
+    /**
+     * 令牌桶: 按固定速率生成令牌, 允许不超过桶容量的突发
+     */
+    TOKEN_BUCKET,
+    /**
+     * 滑动窗口: 任意窗口时长内请求数不超过上限
+     */
+    SLIDING_WINDOW
+}
@@ -0,0 +1,57 @@
+package com.frestream.cache.limit;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * @description: 限流规则
+ *
+ * @author: TJ
+ * @date:  2022-09-13
+ **/
+@Data
+@Accessors(chain = true)
+public class RateLimitRule {
+
+    /**
+     * 限流算法
+     */
+    private RateLimitAlgorithm algorithm = RateLimitAlgorithm.TOKEN_BUCKET;
+    /**
+     * 令牌桶: 每秒生成令牌数; 滑动窗口: 窗口内允许的请求数
+     */
+    private double rate;
+    /**
+     * 令牌桶容量, 小于等于0时取 rate
+     */
+    private long capacity;
+    /**
+     * 滑动窗口大小, 单位毫秒
+     */
+    private long window = 1000L;
+    /**
+     * 本地预取数量: 大于1时每次从Redis批量获取令牌在本地消费, 减少Redis访问, 代价是集群整体精度下降
+     */
+    private int leaseSize = 1;
+    /**
+     * 本地预取令牌的有效时间, 单位毫秒, 过期未用完的令牌作废
+     */
+    private long leaseMillis = 1000L;
+
+    public long getCapacity() {
+        return capacity > 0 ? capacity : (long) Math.ceil(rate);
+    }
+
+    /**
+     * 校验规则, 不合法时抛出 IllegalArgumentException; 令牌桶脚本按 capacity / rate 计算过期时间, rate 必须大于0
+     */
+    public RateLimitRule validate() {
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("限流速率必须大于0: " + rate);
+        }
+        if (algorithm == RateLimitAlgorithm.SLIDING_WINDOW && (window <= 0 || rate < 1)) {
+            throw new IllegalArgumentException(String.format("滑动窗口大小与请求数必须大于0: window: [%d] rate: [%s]", window, rate));
+        }
+        return this;
+    }
+}
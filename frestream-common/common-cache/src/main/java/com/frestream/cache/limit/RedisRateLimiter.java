@@ -0,0 +1,124 @@
+package com.frestream.cache.limit;
+
+import com.frestream.cache.redis.RedisService;
+import com.frestream.cache.script.RedisScripts;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @description:
+ *   基于Redis的集群限流, 每次判断为一次原子脚本调用;
+ *   规则开启本地预取时, 批量获取令牌在本地消费, 用完或过期后再访问Redis.
+ *   Redis不可用时放行请求
+ *
+ * @author: TJ
+ * @date:  2022-09-13
+ **/
+@Slf4j(topic = "common-cache-RedisRateLimiter")
+@Component
+public class RedisRateLimiter {
+
+    private static final String KEY_PREFIX = "rate:limit:";
+
+    private final RedisService redisService;
+    /**
+     * 本地预取的令牌, 长时间未访问的key自动移除
+     */
+    private final Cache<String, Lease> leases = CacheBuilder.newBuilder()
+            .maximumSize(10000L)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    public RedisRateLimiter(RedisService redisService) {
+        this.redisService = redisService;
+    }
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @param name 限流对象名称, 如接口路径
+     * @param rule 限流规则, 不合法时抛出 IllegalArgumentException
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(@NonNull String name, @NonNull RateLimitRule rule) {
+        rule.validate();
+        String key = KEY_PREFIX + name;
+        if (rule.getLeaseSize() <= 1) {
+            return acquire(key, rule, 1) > 0;
+        }
+
+        Lease lease;
+        try {
+            lease = leases.get(key, Lease::new);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        if (lease.tryTake()) {
+            return true;
+        }
+        synchronized (lease) {
+            if (lease.tryTake()) {
+                return true;
+            }
+            long granted = acquire(key, rule, rule.getLeaseSize());
+            if (granted <= 0) {
+                return false;
+            }
+            lease.reset(granted - 1, System.currentTimeMillis() + rule.getLeaseMillis());
+            return true;
+        }
+    }
+
+    private long acquire(String key, RateLimitRule rule, int requested) {
+        try {
+            Long granted;
+            if (rule.getAlgorithm() == RateLimitAlgorithm.SLIDING_WINDOW) {
+                granted = redisService.execute(RedisScripts.SLIDING_WINDOW, Collections.singletonList(key),
+                        rule.getWindow(), (long) rule.getRate(), requested);
+            } else {
+                granted = redisService.execute(RedisScripts.TOKEN_BUCKET, Collections.singletonList(key),
+                        rule.getRate(), rule.getCapacity(), requested);
+            }
+            return granted == null ? 0L : granted;
+        } catch (Exception e) {
+            log.error("===[RedisRateLimiter][acquire] 限流判断失败, 放行: {}", key, e);
+            return requested;
+        }
+    }
+
+    /**
+     * 本地预取的令牌
+     */
+    private static class Lease {
+
+        private final AtomicLong remaining = new AtomicLong();
+        private volatile long expireAt;
+
+        private boolean tryTake() {
+            if (System.currentTimeMillis() > expireAt) {
+                return false;
+            }
+            long current;
+            do {
+                current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        private void reset(long tokens, long expireAt) {
+            this.remaining.set(tokens);
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.frestream.cache.near;
+
+import cn.hutool.core.util.IdUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @description:
+ *   Redis前置的本地一级缓存(L1), 按大小和写入时间淘汰;
+ *   通过 RedisService 写入/删除时, 经 Redis pub/sub 广播失效消息, 保证各节点L1一致; 批量写入/删除每次调用只广播一条消息
+ *
+ * @author: TJ
+ * @date:  2022-09-05
+ **/
+@Slf4j(topic = "common-cache-NearCache")
+@Component
+public class NearCache implements MessageListener {
+
+    /**
+     * 失效消息中节点id与key的分隔符
+     */
+    private static final char SEPARATOR = '|';
+
+    private final NearCacheProperties properties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 当前节点标识, 用于忽略自身发出的失效消息
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+    /**
+     * String结构缓存
+     */
+    private final Cache<String, Object> values;
+    /**
+     * Hash结构缓存, 整个key失效时一并移除
+     */
+    private final Cache<String, ConcurrentMap<String, Object>> hashes;
+    /**
+     * 失效版本号, 任一key失效时递增; 加载期间发生失效则放弃回填, 避免写入旧值
+     */
+    private final AtomicLong version = new AtomicLong();
+    /**
+     * 按前缀统计命中/未命中次数: [0]命中 [1]未命中
+     */
+    private final ConcurrentMap<String, LongAdder[]> counters = new ConcurrentHashMap<>();
+
+    public NearCache(NearCacheProperties properties, RedisTemplate<String, Object> redisTemplate,
+                     RedisMessageListenerContainer listenerContainer) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.values = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+        this.hashes = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (properties.isEnabled()) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(properties.getChannel()));
+        }
+    }
+
+    /**
+     * 判断key是否走本地缓存
+     */
+    public boolean accept(String key) {
+        return properties.isEnabled() && matchPrefix(key) != null;
+    }
+
+    /**
+     * 读取String结构缓存, 本地未命中时调用 loader 从Redis加载并回填
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        String prefix = matchPrefix(key);
+        Object value = values.getIfPresent(key);
+        if (value != null) {
+            counter(prefix)[0].increment();
+            return (T) value;
+        }
+        counter(prefix)[1].increment();
+
+        long current = version.get();
+        T loaded = loader.get();
+        if (loaded != null && version.get() == current) {
+            values.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 读取Hash结构缓存, 本地未命中时调用 loader 从Redis加载并回填
+     */
+    public Object hGet(String key, String item, Supplier<Object> loader) {
+        String prefix = matchPrefix(key);
+        ConcurrentMap<String, Object> items = hashes.getIfPresent(key);
+        Object value = items == null ? null : items.get(item);
+        if (value != null) {
+            counter(prefix)[0].increment();
+            return value;
+        }
+        counter(prefix)[1].increment();
+
+        long current = version.get();
+        Object loaded = loader.get();
+        if (loaded != null && version.get() == current) {
+            hashes.asMap().computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(item, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 失效本地缓存并广播到其他节点
+     */
+    public void invalidate(String key) {
+        String message = invalidateMessage(key);
+        if (message == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(properties.getChannel(), message);
+        } catch (Exception e) {
+            // 广播失败时其他节点依靠过期时间兜底
+            log.error("===[NearCache][invalidate] 失效广播失败: {}", key, e);
+        }
+    }
+
+    /**
+     * 失效本地缓存, 返回需要发送到 {@link #getChannel()} 的失效消息, 由调用方自行广播(如非阻塞发送);
+     * key不走本地缓存时返回null
+     */
+    public String invalidateMessage(String key) {
+        if (!accept(key)) {
+            return null;
+        }
+        invalidateLocal(key);
+        return nodeId + SEPARATOR + key;
+    }
+
+    /**
+     * 批量失效本地缓存并广播, 只发送一条失效消息
+     */
+    public void invalidateAll(Collection<String> keys) {
+        Object message = invalidateMessage(keys);
+        if (message == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(properties.getChannel(), message);
+        } catch (Exception e) {
+            log.error("===[NearCache][invalidateAll] 失效广播失败: {} 个key", keys.size(), e);
+        }
+    }
+
+    /**
+     * 批量失效本地缓存, 返回一条失效消息: 只有一个key走本地缓存时与 {@link #invalidateMessage(String)} 相同,
+     * 多个时为 [节点id, key...] 列表; 都不走本地缓存时返回null
+     */
+    public Object invalidateMessage(Collection<String> keys) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        List<String> message = null;
+        for (String key : keys) {
+            if (matchPrefix(key) == null) {
+                continue;
+            }
+            invalidateLocal(key);
+            if (message == null) {
+                message = new ArrayList<>();
+                message.add(nodeId);
+            }
+            message.add(key);
+        }
+        if (message == null) {
+            return null;
+        }
+        return message.size() == 2 ? nodeId + SEPARATOR + message.get(1) : message;
+    }
+
+    /**
+     * 失效广播频道
+     */
+    public String getChannel() {
+        return properties.getChannel();
+    }
+
+    /**
+     * 按前缀获取命中统计
+     */
+    public List<NearCacheStats> stats() {
+        List<NearCacheStats> stats = new ArrayList<>(counters.size());
+        for (Map.Entry<String, LongAdder[]> entry : counters.entrySet()) {
+            stats.add(new NearCacheStats()
+                    .setPrefix(entry.getKey())
+                    .setHitCount(entry.getValue()[0].sum())
+                    .setMissCount(entry.getValue()[1].sum()));
+        }
+        return stats;
+    }
+
+    /**
+     * 接收其他节点的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (body == null) {
+            return;
+        }
+        if (body instanceof List) {
+            // 批量失效: [节点id, key...]
+            List<?> batch = (List<?>) body;
+            if (batch.isEmpty() || nodeId.equals(String.valueOf(batch.get(0)))) {
+                return;
+            }
+            for (int i = 1; i < batch.size(); i++) {
+                invalidateLocal(String.valueOf(batch.get(i)));
+            }
+            return;
+        }
+        String payload = body.toString();
+        int index = payload.indexOf(SEPARATOR);
+        if (index < 0 || nodeId.equals(payload.substring(0, index))) {
+            return;
+        }
+        invalidateLocal(payload.substring(index + 1));
+    }
+
+    private void invalidateLocal(String key) {
+        version.incrementAndGet();
+        values.invalidate(key);
+        hashes.invalidate(key);
+    }
+
+    /**
+     * 匹配最长的已配置前缀
+     */
+    private String matchPrefix(String key) {
+        String matched = null;
+        for (String prefix : properties.getPrefixes()) {
+            if (key.startsWith(prefix) && (matched == null || prefix.length() > matched.length())) {
+                matched = prefix;
+            }
+        }
+        return matched;
+    }
+
+    private LongAdder[] counter(String prefix) {
+        return counters.computeIfAbsent(prefix, p -> new LongAdder[]{new LongAdder(), new LongAdder()});
+    }
+}
@@ -0,0 +1,41 @@
+package com.frestream.cache.near;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @description: 本地一级缓存(L1)配置
+ *
+ * @author: TJ
+ * @date:  2022-09-05
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.near")
+public class NearCacheProperties {
+
+    /**
+     * 是否开启本地一级缓存
+     */
+    private boolean enabled = false;
+    /**
+     * 需要本地缓存的key前缀, 只有匹配前缀的key才会进入L1; 为空则不缓存任何key
+     */
+    private List<String> prefixes = new ArrayList<>();
+    /**
+     * 本地缓存最大条目数
+     */
+    private long maximumSize = 10000L;
+    /**
+     * 本地缓存写入后过期时间, 单位秒
+     */
+    private long expireSeconds = 60L;
+    /**
+     * 失效广播使用的 pub/sub 频道
+     */
+    private String channel = "frestream:cache:near:invalidate";
+}
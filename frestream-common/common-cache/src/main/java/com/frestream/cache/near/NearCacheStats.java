@@ -0,0 +1,36 @@
+package com.frestream.cache.near;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * @description: 本地缓存按key前缀统计的命中情况
+ *
+ * @author: TJ
+ * @date:  2022-09-05
+ **/
+@Data
+@Accessors(chain = true)
+public class NearCacheStats {
+
+    /**
+     * key前缀
+     */
+    private String prefix;
+    /**
+     * 命中次数
+     */
+    private long hitCount;
+    /**
+     * 未命中次数
+     */
+    private long missCount;
+
+    /**
+     * 命中率, 无请求时返回 1.0
+     */
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0L ? 1.0D : (double) hitCount / total;
+    }
+}
@@ -0,0 +1,309 @@
+package com.frestream.cache.redis;
+
+import com.frestream.cache.hotkey.HotKeyDetector;
+import com.frestream.cache.near.NearCache;
+import lombok.NonNull;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @description:
+ *   RedisService 的非阻塞版本, 所有操作返回 CompletableFuture, 不占用调用线程等待Redis响应;
+ *   读取不经过本地一级缓存和热点key副本, 写入成功后同样失效本地缓存
+ *
+ * @author: TJ
+ * @date:  2022-09-19
+ **/
+@Component
+public class AsyncRedisService {
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final NearCache nearCache;
+    private final HotKeyDetector hotKeyDetector;
+
+    public AsyncRedisService(ReactiveRedisTemplate<String, Object> reactiveRedisTemplate, NearCache nearCache,
+                             HotKeyDetector hotKeyDetector) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.nearCache = nearCache;
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    /**
+     * 设置缓存过期时间
+     *
+     * @param key  键
+     * @param time 过期时间, 单位秒
+     */
+    public CompletableFuture<Boolean> expire(@NonNull String key, long time) {
+        if (time > 0) {
+            return reactiveRedisTemplate.expire(key, Duration.ofSeconds(time)).toFuture();
+        }
+        return CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * 获取指定键过期时间, 单位秒
+     */
+    public CompletableFuture<Long> getExpire(@NonNull String key) {
+        return reactiveRedisTemplate.getExpire(key).map(Duration::getSeconds).toFuture();
+    }
+
+    /**
+     * 判断 key 是否存在
+     */
+    public CompletableFuture<Boolean> hasKey(@NonNull String key) {
+        return reactiveRedisTemplate.hasKey(key).toFuture();
+    }
+
+    /**
+     * 删除缓存
+     */
+    public CompletableFuture<Boolean> del(@NonNull String key) {
+        return afterWrite(key, reactiveRedisTemplate.delete(key).map(count -> count > 0));
+    }
+
+    /**
+     * 批量删除缓存
+     *
+     * @return 删除的个数
+     */
+    public CompletableFuture<Long> mDel(@NonNull Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        return reactiveRedisTemplate.delete(keys.toArray(new String[0]))
+                .flatMap(count -> invalidate(keys).thenReturn(count))
+                .toFuture();
+    }
+
+    // ============================ String
+
+    /**
+     * 缓存获取, 不存在时结果为null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> get(@NonNull String key) {
+        return reactiveRedisTemplate.opsForValue().get(key).map(value -> (T) value).toFuture();
+    }
+
+    /**
+     * 批量获取缓存; 结果顺序与 keys 一致, 不存在的key对应null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<List<T>> mGet(@NonNull List<String> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return reactiveRedisTemplate.opsForValue().multiGet(keys).map(values -> (List<T>) values).toFuture();
+    }
+
+    /**
+     * 缓存放入
+     */
+    public CompletableFuture<Boolean> set(@NonNull String key, Object value) {
+        return afterWrite(key, reactiveRedisTemplate.opsForValue().set(key, value));
+    }
+
+    /**
+     * 缓存并设置过期时间
+     *
+     * @param time 过期时间, 单位秒; 若小于等于0则永不过期
+     */
+    public CompletableFuture<Boolean> set(@NonNull String key, Object value, long time) {
+        if (time <= 0) {
+            return set(key, value);
+        }
+        return afterWrite(key, reactiveRedisTemplate.opsForValue().set(key, value, Duration.ofSeconds(time)));
+    }
+
+    /**
+     * 当key不存在时, set成功, 返回true
+     */
+    public CompletableFuture<Boolean> setIfAbsent(@NonNull String key, Object value) {
+        return reactiveRedisTemplate.opsForValue().setIfAbsent(key, value)
+                .flatMap(success -> success ? invalidate(key).thenReturn(true) : Mono.just(false))
+                .toFuture();
+    }
+
+    /**
+     * 递增
+     *
+     * @param delta 要增加的数量
+     */
+    public CompletableFuture<Long> incr(@NonNull String key, long delta) {
+        if (delta < 0) {
+            throw new RuntimeException("递增因子必须大于0");
+        }
+        return afterWrite(key, reactiveRedisTemplate.opsForValue().increment(key, delta));
+    }
+
+    /**
+     * 递减
+     *
+     * @param delta 要减少的数量
+     */
+    public CompletableFuture<Long> decr(@NonNull String key, long delta) {
+        if (delta < 0) {
+            throw new RuntimeException("递减因子必须大于0");
+        }
+        return afterWrite(key, reactiveRedisTemplate.opsForValue().decrement(key, delta));
+    }
+
+    // ================================ Hash
+
+    /**
+     * 获取Hash结构缓存值
+     */
+    public CompletableFuture<Object> hGet(@NonNull String key, @NonNull String item) {
+        return reactiveRedisTemplate.opsForHash().get(key, item).toFuture();
+    }
+
+    /**
+     * 获取Hash结构全部键值
+     */
+    public CompletableFuture<Map<String, Object>> hGetMap(@NonNull String key) {
+        return reactiveRedisTemplate.<String, Object>opsForHash().entries(key)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new)
+                .toFuture();
+    }
+
+    /**
+     * Hash设置缓存
+     */
+    public CompletableFuture<Boolean> hSet(@NonNull String key, @NonNull String item, Object value) {
+        return afterWrite(key, reactiveRedisTemplate.opsForHash().put(key, item, value));
+    }
+
+    /**
+     * Hash结构设置缓存
+     */
+    public CompletableFuture<Boolean> hSetMap(@NonNull String key, Map<String, Object> map) {
+        return afterWrite(key, reactiveRedisTemplate.opsForHash().putAll(key, map));
+    }
+
+    /**
+     * Hash删除值
+     *
+     * @return 删除的个数
+     */
+    public CompletableFuture<Long> hDel(@NonNull String key, Object... item) {
+        return afterWrite(key, reactiveRedisTemplate.opsForHash().remove(key, item));
+    }
+
+    // ============================ set
+
+    /**
+     * 根据key获取Set中的所有值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<Set<T>> sGet(@NonNull String key) {
+        return reactiveRedisTemplate.opsForSet().members(key)
+                .map(value -> (T) value)
+                .collect(LinkedHashSet<T>::new, Set::add)
+                .map(set -> (Set<T>) set)
+                .toFuture();
+    }
+
+    /**
+     * 判断value在set中是否存在
+     */
+    public CompletableFuture<Boolean> setExist(@NonNull String key, Object value) {
+        return reactiveRedisTemplate.opsForSet().isMember(key, value).toFuture();
+    }
+
+    /**
+     * 将数据放入set缓存
+     *
+     * @return 成功个数
+     */
+    public CompletableFuture<Long> sSet(@NonNull String key, Object... values) {
+        return afterWrite(key, reactiveRedisTemplate.opsForSet().add(key, values));
+    }
+
+    // =============================== list
+
+    /**
+     * 获取list缓存的内容
+     *
+     * @param start 开始
+     * @param end   结束 0 到 -1 代表所有值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<List<T>> lGet(@NonNull String key, long start, long end) {
+        return reactiveRedisTemplate.opsForList().range(key, start, end)
+                .map(value -> (T) value)
+                .collectList()
+                .toFuture();
+    }
+
+    /**
+     * 加入list缓存
+     *
+     * @return list长度
+     */
+    public CompletableFuture<Long> lSet(@NonNull String key, Object value) {
+        return afterWrite(key, reactiveRedisTemplate.opsForList().rightPush(key, value));
+    }
+
+    // ================================ zset
+
+    /**
+     * zset添加
+     */
+    public CompletableFuture<Boolean> zAdd(@NonNull String key, Object value, double score) {
+        return afterWrite(key, reactiveRedisTemplate.opsForZSet().add(key, value, score));
+    }
+
+    /**
+     * 获取指定元素分数
+     */
+    public CompletableFuture<Double> zScore(@NonNull String key, Object value) {
+        return reactiveRedisTemplate.opsForZSet().score(key, value).toFuture();
+    }
+
+    /**
+     * 获取指定分数范围内的集合, 按分数升序
+     */
+    public CompletableFuture<List<Object>> rangeByScore(@NonNull String key, double minScore, double maxScore) {
+        return reactiveRedisTemplate.opsForZSet().rangeByScore(key, Range.closed(minScore, maxScore))
+                .collectList()
+                .toFuture();
+    }
+
+    /**
+     * 写入成功后失效本地缓存
+     */
+    private <T> CompletableFuture<T> afterWrite(String key, Mono<T> write) {
+        return write.flatMap(result -> invalidate(key).thenReturn(result)).toFuture();
+    }
+
+    /**
+     * 失效本地缓存, 并以非阻塞方式广播一级缓存失效消息, 避免在Lettuce事件线程上执行阻塞命令
+     */
+    private Mono<Long> invalidate(String key) {
+        hotKeyDetector.invalidate(key);
+        String message = nearCache.invalidateMessage(key);
+        if (message == null) {
+            return Mono.just(0L);
+        }
+        return reactiveRedisTemplate.convertAndSend(nearCache.getChannel(), message).onErrorReturn(0L);
+    }
+
+    /**
+     * 批量失效本地缓存, 一级缓存只广播一条失效消息
+     */
+    private Mono<Long> invalidate(Collection<String> keys) {
+        keys.forEach(hotKeyDetector::invalidate);
+        Object message = nearCache.invalidateMessage(keys);
+        if (message == null) {
+            return Mono.just(0L);
+        }
+        return reactiveRedisTemplate.convertAndSend(nearCache.getChannel(), message).onErrorReturn(0L);
+    }
+}
@@ -1,10 +1,16 @@
 package com.frestream.cache.redis;
 
+import com.frestream.cache.codec.CompactRedisSerializer;
+import com.frestream.cache.codec.RedisCodecProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -18,23 +24,60 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 public class RedisConfig {
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory, RedisCodecProperties codecProperties) {
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(factory);
 
-        // 类似使用Jackson序列化, 用来序列化value
-        GenericJackson2JsonRedisSerializer genericJackson2JsonRedisSerializer = new GenericJackson2JsonRedisSerializer();
+        // 用来序列化value: 默认类似使用Jackson序列化, 可配置为紧凑二进制格式(兼容读取JSON数据)
+        RedisSerializer<Object> valueSerializer = valueSerializer(codecProperties);
         // String序列化用来序列化key
         RedisSerializer<String> stringRedisSerializer = new StringRedisSerializer();
 
         // string key序列化
         redisTemplate.setKeySerializer(stringRedisSerializer);
         // string value序列化
-        redisTemplate.setValueSerializer(genericJackson2JsonRedisSerializer);
+        redisTemplate.setValueSerializer(valueSerializer);
         // hash key序列化
         redisTemplate.setHashKeySerializer(stringRedisSerializer);
         // hash value序列化
-        redisTemplate.setHashValueSerializer(genericJackson2JsonRedisSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
         return redisTemplate;
     }
+
+    /**
+     * 根据配置创建 value 序列化器
+     */
+    public static RedisSerializer<Object> valueSerializer(RedisCodecProperties codecProperties) {
+        if (codecProperties.isCompact()) {
+            return new CompactRedisSerializer(codecProperties);
+        }
+        return new GenericJackson2JsonRedisSerializer();
+    }
+
+    /**
+     * 非阻塞操作模板, 基于同一个 Lettuce 连接工厂, 序列化方式与 redisTemplate 一致
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(ReactiveRedisConnectionFactory factory,
+                                                                       RedisTemplate<String, Object> redisTemplate) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        RedisSerializationContext<String, Object> serializationContext = RedisSerializationContext
+                .<String, Object>newSerializationContext(valueSerializer)
+                .key(keySerializer)
+                .hashKey(keySerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(factory, serializationContext);
+    }
+
+    /**
+     * pub/sub 消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
 }
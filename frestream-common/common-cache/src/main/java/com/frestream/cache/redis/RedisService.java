@@ -1,12 +1,44 @@
 package com.frestream.cache.redis;
 
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.IdUtil;
+import com.frestream.cache.hotkey.HotKeyDetector;
+import com.frestream.cache.near.NearCache;
+import com.frestream.cache.script.RedisScripts;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisConnectionUtils;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * @description:
@@ -14,13 +46,72 @@ import java.util.concurrent.TimeUnit;
  * @date: 2022-04-27
  **/
 @SuppressWarnings(value = {"unchecked", "rawtypes"})
+@Slf4j(topic = "common-cache-RedisService")
 @Component
 public final class RedisService {
 
+    /**
+     * getOrLoad 缓存空结果时使用的占位值
+     */
+    private static final String NULL_VALUE = "@@NULL@@";
+    /**
+     * 空结果默认缓存时间, 单位秒
+     */
+    private static final long NULL_VALUE_TIME = 60L;
+    /**
+     * 跨节点加载租约key前缀
+     */
+    private static final String LOAD_LEASE_PREFIX = "lease:load:";
+    /**
+     * 加载租约时间, 也是等待其他节点加载的最长时间, 单位毫秒
+     */
+    private static final long LOAD_LEASE_MILLIS = 3000L;
+    /**
+     * 等待其他节点加载时的轮询间隔, 单位毫秒
+     */
+    private static final long LOAD_WAIT_MILLIS = 50L;
+    /**
+     * 未统计到加载耗时时的默认值, 单位毫秒
+     */
+    private static final long DEFAULT_LOAD_COST = 100L;
+    /**
+     * 提前刷新系数, 越大越早刷新
+     */
+    private static final double REFRESH_BETA = 1.0D;
+    /**
+     * 按模式删除时默认每批个数
+     */
+    private static final int EVICT_BATCH_SIZE = 500;
+
     private RedisTemplate redisTemplate;
+    /**
+     * 本地一级缓存, 未开启时直接读写Redis
+     */
+    private NearCache nearCache;
+    /**
+     * 热点key探测, 热点key读取时使用短时间本地副本
+     */
+    private HotKeyDetector hotKeyDetector;
+    /**
+     * 本节点正在加载的key, 同一key的并发未命中合并为一次加载
+     */
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    /**
+     * 各key最近一次加载耗时, 用于计算提前刷新概率
+     */
+    private final Cache<String, Long> loadCosts = CacheBuilder.newBuilder().maximumSize(10000L).build();
+    /**
+     * 后台刷新线程池, 队列满时放弃本次刷新
+     */
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(1, 4, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256),
+            new ThreadFactoryBuilder().setNameFormat("redis-refresh-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.DiscardPolicy());
 
-    public RedisService(RedisTemplate<String, Object> rt) {
+    public RedisService(RedisTemplate<String, Object> rt, NearCache nearCache, HotKeyDetector hotKeyDetector) {
         this.redisTemplate = rt;
+        this.nearCache = nearCache;
+        this.hotKeyDetector = hotKeyDetector;
     }
 
     /**
@@ -59,7 +150,9 @@ public final class RedisService {
      * 删除缓存
      */
     public Boolean del(@NonNull String key) {
-        return redisTemplate.delete(key);
+        Boolean deleted = redisTemplate.delete(key);
+        invalidateLocal(key);
+        return deleted;
     }
 
     // ============================ String
@@ -69,7 +162,10 @@ public final class RedisService {
      */
     public <T> T get(@NonNull String key) {
         ValueOperations<String, T> valueOperations = redisTemplate.opsForValue();
-        return valueOperations.get(key);
+        if (nearCache.accept(key)) {
+            return nearCache.get(key, () -> valueOperations.get(key));
+        }
+        return hotKeyDetector.get(key, () -> valueOperations.get(key));
     }
 
     /**
@@ -77,6 +173,7 @@ public final class RedisService {
      */
     public void set(@NonNull String key, Object value) {
         redisTemplate.opsForValue().set(key, value);
+        invalidateLocal(key);
     }
 
     /**
@@ -84,7 +181,24 @@ public final class RedisService {
      * 当key存在时, 取消set, 返回false
      */
     public Boolean setIfAbsent(@NonNull String key, Object value) {
-        return redisTemplate.opsForValue().setIfAbsent(key, value);
+        Boolean success = redisTemplate.opsForValue().setIfAbsent(key, value);
+        if (Boolean.TRUE.equals(success)) {
+            invalidateLocal(key);
+        }
+        return success;
+    }
+
+    /**
+     * 当key不存在时, set并设置过期时间, 返回true; 一次原子操作(SET NX EX)
+     *
+     * @param time 过期时间, 单位秒
+     */
+    public Boolean setIfAbsent(@NonNull String key, Object value, long time) {
+        Boolean success = redisTemplate.opsForValue().setIfAbsent(key, value, time, TimeUnit.SECONDS);
+        if (Boolean.TRUE.equals(success)) {
+            invalidateLocal(key);
+        }
+        return success;
     }
 
     /**
@@ -96,6 +210,7 @@ public final class RedisService {
      */
     public void set(@NonNull String key, Object value, long time) {
         redisTemplate.opsForValue().set(key, value, time, TimeUnit.SECONDS);
+        invalidateLocal(key);
     }
 
     /**
@@ -108,7 +223,9 @@ public final class RedisService {
         if (delta < 0) {
             throw new RuntimeException("递增因子必须大于0");
         }
-        return redisTemplate.opsForValue().increment(key, delta);
+        Long value = redisTemplate.opsForValue().increment(key, delta);
+        invalidateLocal(key);
+        return value;
     }
 
     /**
@@ -121,7 +238,51 @@ public final class RedisService {
         if (delta < 0) {
             throw new RuntimeException("递减因子必须大于0");
         }
-        return redisTemplate.opsForValue().increment(key, -delta);
+        Long value = redisTemplate.opsForValue().increment(key, -delta);
+        invalidateLocal(key);
+        return value;
+    }
+
+    /**
+     * 递增, key首次创建时设置过期时间; 一次原子操作
+     *
+     * @param key   键
+     * @param delta 要增加的数量
+     * @param time  过期时间, 单位秒
+     */
+    public Long incr(@NonNull String key, long delta, long time) {
+        if (delta < 0) {
+            throw new RuntimeException("递增因子必须大于0");
+        }
+        Long value = execute(RedisScripts.INCR_EXPIRE, Collections.singletonList(key), delta, time);
+        invalidateLocal(key);
+        return value;
+    }
+
+    /**
+     * 当前值与期望值相同时重新设置过期时间, 用于续期锁、租约等场景; 一次原子操作
+     *
+     * @param key      键
+     * @param expected 期望值
+     * @param time     过期时间, 单位秒
+     * @return 是否续期成功
+     */
+    public Boolean compareAndExpire(@NonNull String key, Object expected, long time) {
+        Long count = execute(RedisScripts.COMPARE_AND_EXPIRE, Collections.singletonList(key), rawValue(expected), time);
+        return count != null && count > 0;
+    }
+
+    /**
+     * 当前值与期望值相同时删除, 用于释放锁、租约等场景; 一次原子操作
+     *
+     * @param key      键
+     * @param expected 期望值
+     * @return 是否删除
+     */
+    public Boolean compareAndDelete(@NonNull String key, Object expected) {
+        Long count = execute(RedisScripts.COMPARE_AND_DELETE, Collections.singletonList(key), rawValue(expected));
+        invalidateLocal(key);
+        return count != null && count > 0;
     }
 
     // ================================ Hash
@@ -134,7 +295,10 @@ public final class RedisService {
      * @return 值
      */
     public Object hGet(@NonNull String key, @NonNull String item) {
-        return redisTemplate.opsForHash().get(key, item);
+        if (nearCache.accept(key)) {
+            return nearCache.hGet(key, item, () -> redisTemplate.opsForHash().get(key, item));
+        }
+        return hotKeyDetector.hGet(key, item, () -> redisTemplate.opsForHash().get(key, item));
     }
 
     /**
@@ -155,6 +319,7 @@ public final class RedisService {
      */
     public void hSetMap(@NonNull String key, Map<String, Object> map) {
         redisTemplate.opsForHash().putAll(key, map);
+        invalidateLocal(key);
     }
 
     /**
@@ -165,10 +330,15 @@ public final class RedisService {
      * @param time 过期时间, 单位秒
      */
     public void hSetMap(@NonNull String key, Map<String, Object> map, long time) {
-        redisTemplate.opsForHash().putAll(key, map);
-        if (time > 0) {
-            expire(key, time);
+        Object[] args = new Object[map.size() * 2 + 1];
+        args[0] = time;
+        int i = 1;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            args[i++] = entry.getKey();
+            args[i++] = rawValue(entry.getValue());
         }
+        execute(RedisScripts.HSET_EXPIRE, Collections.singletonList(key), args);
+        invalidateLocal(key);
     }
 
     /**
@@ -176,16 +346,15 @@ public final class RedisService {
      */
     public void hSet(@NonNull String key, @NonNull String item, Object value) {
         redisTemplate.opsForHash().put(key, item, value);
+        invalidateLocal(key);
     }
 
     /**
      * Hash设置缓存, 带过期时间
      */
     public void hSet(@NonNull String key, @NonNull String item, Object value, long time) {
-        redisTemplate.opsForHash().put(key, item, value);
-        if (time > 0) {
-            expire(key, time);
-        }
+        execute(RedisScripts.HSET_EXPIRE, Collections.singletonList(key), time, item, rawValue(value));
+        invalidateLocal(key);
     }
 
     /**
@@ -196,6 +365,7 @@ public final class RedisService {
      */
     public void hDel(@NonNull String key, Object... item) {
         redisTemplate.opsForHash().delete(key, item);
+        invalidateLocal(key);
     }
 
     /**
@@ -244,11 +414,7 @@ public final class RedisService {
      * @return 成功个数
      */
     public Long sSetWithTime(@NonNull String key, long time, Object... values) {
-        Long count = redisTemplate.opsForSet().add(key, values);
-        if (time > 0L) {
-            expire(key, time);
-        }
-        return count;
+        return execute(RedisScripts.SADD_EXPIRE, Collections.singletonList(key), timeWithValues(time, Arrays.asList(values)));
     }
 
     /**
@@ -313,10 +479,7 @@ public final class RedisService {
      * @param time  单位秒
      */
     public void lSet(@NonNull String key, Object value, long time) {
-        redisTemplate.opsForList().rightPush(key, value);
-        if (time > 0) {
-            expire(key, time);
-        }
+        execute(RedisScripts.RPUSH_EXPIRE, Collections.singletonList(key), time, rawValue(value));
     }
 
     /**
@@ -337,10 +500,7 @@ public final class RedisService {
      * @param time  时间(秒)
      */
     public void lSet(@NonNull String key, List<Object> value, long time) {
-        redisTemplate.opsForList().rightPushAll(key, value);
-        if (time > 0) {
-            expire(key, time);
-        }
+        execute(RedisScripts.RPUSH_EXPIRE, Collections.singletonList(key), timeWithValues(time, value));
     }
 
     /**
@@ -391,4 +551,726 @@ public final class RedisService {
     public Set reverseRange(@NonNull String key, long start, long end) {
         return redisTemplate.opsForZSet().reverseRange(key, start, end);
     }
+
+    // ================================ hyperloglog
+
+    /**
+     * HyperLogLog添加元素, 用于基数(如UV)统计, 每个key固定约12KB, 误差约0.81%
+     *
+     * @return 估算基数是否发生变化, 1 是 0 否
+     */
+    public Long pfAdd(@NonNull String key, Object... values) {
+        Long changed = redisTemplate.opsForHyperLogLog().add(key, values);
+        invalidateLocal(key);
+        return changed;
+    }
+
+    /**
+     * HyperLogLog估算基数; 多个key时为并集的基数, 集群模式下多个key须在同一slot(使用hash tag)
+     */
+    public Long pfCount(@NonNull String... keys) {
+        return redisTemplate.opsForHyperLogLog().size((Object[]) keys);
+    }
+
+    /**
+     * 合并多个HyperLogLog到目标key
+     */
+    public void pfMerge(@NonNull String destKey, @NonNull String... sourceKeys) {
+        redisTemplate.opsForHyperLogLog().union(destKey, (Object[]) sourceKeys);
+        invalidateLocal(destKey);
+    }
+
+    /**
+     * 按天添加元素, key为 {prefix}:{yyyyMMdd}
+     *
+     * @param time 过期时间, 单位秒, 基数变化时刷新; 若小于等于0则永不过期
+     */
+    public Long pfAddDaily(@NonNull String prefix, @NonNull LocalDate day, long time, Object... values) {
+        String key = dayKey(prefix, day);
+        Long changed = pfAdd(key, values);
+        if (time > 0 && changed != null && changed > 0) {
+            expire(key, time);
+        }
+        return changed;
+    }
+
+    /**
+     * 统计日期区间内(含首尾)去重后的基数, 一次 PFCOUNT
+     */
+    public Long pfCountDays(@NonNull String prefix, @NonNull LocalDate from, @NonNull LocalDate to) {
+        return pfCount(dayKeys(prefix, from, to));
+    }
+
+    // ================================ bitmap
+
+    /**
+     * 设置位图指定位, 如以用户id为偏移量记录当天是否活跃; 偏移量须小于 2^32
+     *
+     * @return 原来的值
+     */
+    public Boolean setBit(@NonNull String key, long offset, boolean value) {
+        Boolean old = redisTemplate.opsForValue().setBit(key, offset, value);
+        invalidateLocal(key);
+        return old;
+    }
+
+    /**
+     * 获取位图指定位
+     */
+    public Boolean getBit(@NonNull String key, long offset) {
+        return redisTemplate.opsForValue().getBit(key, offset);
+    }
+
+    /**
+     * 统计位图中为1的位数
+     */
+    public Long bitCount(@NonNull String key) {
+        byte[] rawKey = rawKey(key);
+        return (Long) redisTemplate.execute((RedisCallback<Long>) connection -> connection.stringCommands().bitCount(rawKey));
+    }
+
+    /**
+     * 多个位图按位运算, 结果写入目标key; 集群模式下所有key须在同一slot(使用hash tag)
+     *
+     * @param op 运算, AND 如连续活跃, OR 如区间内活跃
+     * @return 目标key的字节长度
+     */
+    public Long bitOp(@NonNull RedisStringCommands.BitOperation op, @NonNull String destKey, @NonNull String... keys) {
+        byte[] rawDestKey = rawKey(destKey);
+        byte[][] rawKeys = Arrays.stream(keys).map(this::rawKey).toArray(byte[][]::new);
+        Long length = (Long) redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().bitOp(op, rawDestKey, rawKeys));
+        invalidateLocal(destKey);
+        return length;
+    }
+
+    /**
+     * 按天设置位图, key为 {prefix}:{yyyyMMdd}
+     *
+     * @param time 过期时间, 单位秒, 某位由0变为1时刷新; 若小于等于0则永不过期
+     * @return 原来的值
+     */
+    public Boolean setBitDaily(@NonNull String prefix, @NonNull LocalDate day, long offset, boolean value, long time) {
+        String key = dayKey(prefix, day);
+        Boolean old = setBit(key, offset, value);
+        if (time > 0 && value && !Boolean.TRUE.equals(old)) {
+            expire(key, time);
+        }
+        return old;
+    }
+
+    /**
+     * 汇总日期区间内(含首尾)的每日位图, 结果写入 {prefix}:{from}-{to} 并返回为1的位数;
+     * 汇总结果保留指定时间, 期间重复查询可直接 bitCount
+     *
+     * @param op   AND 区间内每天都活跃, OR 区间内任一天活跃
+     * @param time 汇总结果过期时间, 单位秒; 若小于等于0则永不过期
+     */
+    public Long bitCountDays(@NonNull String prefix, @NonNull LocalDate from, @NonNull LocalDate to,
+                             @NonNull RedisStringCommands.BitOperation op, long time) {
+        String destKey = prefix + ":" + from.format(DateTimeFormatter.BASIC_ISO_DATE) + "-" + to.format(DateTimeFormatter.BASIC_ISO_DATE);
+        bitOp(op, destKey, dayKeys(prefix, from, to));
+        expire(destKey, time);
+        return bitCount(destKey);
+    }
+
+    private String dayKey(String prefix, LocalDate day) {
+        return prefix + ":" + day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    private String[] dayKeys(String prefix, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("结束日期不能早于开始日期: " + from + " - " + to);
+        }
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            keys.add(dayKey(prefix, day));
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    // ================================ script
+
+    /**
+     * 执行Lua脚本, 优先 EVALSHA, 脚本未加载时自动回退 EVAL
+     *
+     * @param script 脚本, 见 {@link RedisScripts}
+     * @param keys   键
+     * @param args   参数; byte[] 原样传入, 其余按字符串传入. 需与缓存值比较或写入缓存的参数先经 {@link #rawValue(Object)} 序列化
+     */
+    public <T> T execute(@NonNull RedisScript<T> script, @NonNull List<String> keys, Object... args) {
+        return execute(script, redisTemplate.getValueSerializer(), keys, args);
+    }
+
+    /**
+     * 执行Lua脚本, 返回的字符串结果使用指定的序列化方式反序列化; 参数处理同上
+     *
+     * @param resultSerializer 结果反序列化方式, 如 RedisSerializer.byteArray() 返回原始字节
+     */
+    public <T> T execute(@NonNull RedisScript<T> script, @NonNull RedisSerializer<?> resultSerializer,
+                         @NonNull List<String> keys, Object... args) {
+        byte[][] rawArgs = new byte[args.length][];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            rawArgs[i] = arg instanceof byte[] ? (byte[]) arg : String.valueOf(arg).getBytes(StandardCharsets.UTF_8);
+        }
+        return (T) redisTemplate.execute(script, RedisSerializer.byteArray(), resultSerializer, keys, (Object[]) rawArgs);
+    }
+
+    /**
+     * 按缓存值的序列化方式反序列化, 用于处理脚本返回的原始字节
+     */
+    public Object value(byte[] rawValue) {
+        return redisTemplate.getValueSerializer().deserialize(rawValue);
+    }
+
+    /**
+     * 按缓存值的序列化方式序列化, 作为脚本参数使用
+     */
+    public byte[] rawValue(Object value) {
+        return redisTemplate.getValueSerializer().serialize(value);
+    }
+
+    private Object[] timeWithValues(long time, List<?> values) {
+        Object[] args = new Object[values.size() + 1];
+        args[0] = time;
+        for (int i = 0; i < values.size(); i++) {
+            args[i + 1] = rawValue(values.get(i));
+        }
+        return args;
+    }
+
+    // ================================ load
+
+    /**
+     * 获取缓存, 未命中时调用 loader 加载并放入缓存; 空结果缓存 {@value NULL_VALUE_TIME} 秒
+     *
+     * @see #getOrLoad(String, long, long, Supplier)
+     */
+    public <T> T getOrLoad(@NonNull String key, long time, @NonNull Supplier<T> loader) {
+        return getOrLoad(key, time, NULL_VALUE_TIME, loader);
+    }
+
+    /**
+     * 获取缓存, 未命中时调用 loader 加载并放入缓存.
+     * 本节点同一key的并发未命中只加载一次; 跨节点通过Redis租约只允许一个节点加载, 其余节点等待结果;
+     * 命中时按剩余时间和加载耗时概率性地后台提前刷新, 避免热点key过期瞬间击穿到数据库
+     *
+     * @param key      键
+     * @param time     过期时间, 单位秒; 若小于等于0则永不过期
+     * @param nullTime loader返回null时的缓存时间, 单位秒; 小于等于0则不缓存空结果
+     * @param loader   加载函数
+     */
+    public <T> T getOrLoad(@NonNull String key, long time, long nullTime, @NonNull Supplier<T> loader) {
+        List<Object> result = pipelined(operations -> {
+            operations.opsForValue().get(key);
+            operations.getExpire(key, TimeUnit.MILLISECONDS);
+        });
+        Object value = result.get(0);
+        if (value != null) {
+            if (shouldRefresh(key, (Long) result.get(1))) {
+                refreshExecutor.execute(() -> {
+                    try {
+                        load(key, time, nullTime, loader, true);
+                    } catch (Exception e) {
+                        log.warn("===[RedisService][getOrLoad] 提前刷新失败: {}", key, e);
+                    }
+                });
+            }
+            return NULL_VALUE.equals(value) ? null : (T) value;
+        }
+        return (T) load(key, time, nullTime, loader, false);
+    }
+
+    /**
+     * 合并本节点同一key的并发加载
+     *
+     * @param refresh 是否为后台刷新; 刷新时若已有加载在进行则直接放弃
+     */
+    private Object load(String key, long time, long nullTime, Supplier<?> loader, boolean refresh) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            if (refresh) {
+                return null;
+            }
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            Object value = loadWithLease(key, time, nullTime, loader, refresh);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 获取跨节点租约后加载; 未获取到租约时等待持有租约的节点写入结果, 超时后自行加载
+     */
+    private Object loadWithLease(String key, long time, long nullTime, Supplier<?> loader, boolean refresh) {
+        String leaseKey = LOAD_LEASE_PREFIX + key;
+        String token = IdUtil.fastSimpleUUID();
+        boolean leased = Boolean.TRUE.equals(
+                redisTemplate.opsForValue().setIfAbsent(leaseKey, token, LOAD_LEASE_MILLIS, TimeUnit.MILLISECONDS));
+        if (!leased) {
+            if (refresh) {
+                return null;
+            }
+            long deadline = System.currentTimeMillis() + LOAD_LEASE_MILLIS;
+            while (System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(LOAD_WAIT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                Object value = redisTemplate.opsForValue().get(key);
+                if (value != null) {
+                    return NULL_VALUE.equals(value) ? null : value;
+                }
+            }
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Object value = loader.get();
+            loadCosts.put(key, System.currentTimeMillis() - start);
+            if (value == null) {
+                if (nullTime > 0) {
+                    set(key, NULL_VALUE, nullTime);
+                }
+            } else if (time > 0) {
+                set(key, value, time);
+            } else {
+                set(key, value);
+            }
+            return value;
+        } finally {
+            if (leased) {
+                compareAndDelete(leaseKey, token);
+            }
+        }
+    }
+
+    /**
+     * 概率提前刷新: 剩余时间越短、加载越慢, 刷新概率越高
+     *
+     * @param ttl 剩余过期时间, 单位毫秒
+     */
+    private boolean shouldRefresh(String key, Long ttl) {
+        if (ttl == null || ttl <= 0) {
+            return false;
+        }
+        Long cost = loadCosts.getIfPresent(key);
+        double delta = cost == null ? DEFAULT_LOAD_COST : cost;
+        return -delta * REFRESH_BETA * Math.log(ThreadLocalRandom.current().nextDouble()) >= ttl;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // ================================ batch
+
+    /**
+     * 批量获取缓存, 一次往返; 结果顺序与 keys 一致, 不存在的key对应null
+     */
+    public <T> List<T> mGet(@NonNull List<String> keys) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return redisTemplate.opsForValue().multiGet(keys);
+    }
+
+    /**
+     * 批量获取缓存并转换为指定类型
+     *
+     * @param keys 键
+     * @param type 值类型
+     */
+    public <T> List<T> mGet(@NonNull List<String> keys, @NonNull Class<T> type) {
+        return convertAll(mGet(keys), type);
+    }
+
+    /**
+     * 批量放入缓存(MSET)
+     */
+    public void mSet(@NonNull Map<String, Object> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        redisTemplate.opsForValue().multiSet(map);
+        invalidateLocal(map.keySet());
+    }
+
+    /**
+     * 批量放入缓存, 统一过期时间
+     *
+     * @param map  键值对
+     * @param time 过期时间, 单位秒; 若小于等于0则永不过期
+     */
+    public void mSet(@NonNull Map<String, Object> map, long time) {
+        mSet(map, key -> time);
+    }
+
+    /**
+     * 批量放入缓存, 每个key单独指定过期时间; 通过pipeline一次往返
+     *
+     * @param map  键值对
+     * @param time 根据key返回过期时间, 单位秒; 若小于等于0则永不过期
+     */
+    public void mSet(@NonNull Map<String, Object> map, @NonNull ToLongFunction<String> time) {
+        if (map.isEmpty()) {
+            return;
+        }
+        pipelined(operations -> map.forEach((key, value) -> {
+            long expire = time.applyAsLong(key);
+            if (expire > 0) {
+                operations.opsForValue().set(key, value, expire, TimeUnit.SECONDS);
+            } else {
+                operations.opsForValue().set(key, value);
+            }
+        }));
+        invalidateLocal(map.keySet());
+    }
+
+    /**
+     * 批量递增, 通过pipeline一次往返; 增量可为负数
+     *
+     * @param deltas 键 -> 增量
+     * @return 递增后的值, 顺序与 deltas 的遍历顺序一致
+     */
+    public List<Long> mIncr(@NonNull Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> values = pipelined(operations -> deltas.forEach((key, delta) -> operations.opsForValue().increment(key, delta)));
+        invalidateLocal(deltas.keySet());
+        return values;
+    }
+
+    /**
+     * 批量获取多个Hash中同一项的值; 结果顺序与 keys 一致
+     *
+     * @param keys 键
+     * @param item 项
+     */
+    public <T> List<T> hMultiGet(@NonNull List<String> keys, @NonNull String item) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return pipelined(operations -> keys.forEach(key -> operations.opsForHash().get(key, item)));
+    }
+
+    /**
+     * 批量获取多个Hash中同一项的值并转换为指定类型
+     */
+    public <T> List<T> hMultiGet(@NonNull List<String> keys, @NonNull String item, @NonNull Class<T> type) {
+        return convertAll(hMultiGet(keys, item), type);
+    }
+
+    /**
+     * 批量获取多个Hash的全部键值; 结果顺序与 keys 一致, 不存在的key对应空Map
+     */
+    public List<Map<String, Object>> hGetMaps(@NonNull List<String> keys) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return pipelined(operations -> keys.forEach(key -> operations.opsForHash().entries(key)));
+    }
+
+    /**
+     * 批量获取多个Hash中的多项值(HMGET), 通过pipeline一次往返; 结果顺序与 keyItems 的遍历顺序一致
+     *
+     * @param keyItems 键 -> 项
+     */
+    public List<List<Object>> hMultiGets(@NonNull Map<String, ? extends Collection<String>> keyItems) {
+        if (keyItems.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return pipelined(operations -> keyItems.forEach((key, items) ->
+                operations.opsForHash().multiGet(key, new ArrayList<Object>(items))));
+    }
+
+    /**
+     * 批量设置多个Hash, 通过pipeline一次往返
+     *
+     * @param keyMaps 键 -> 项值对
+     */
+    public void hSetMaps(@NonNull Map<String, Map<String, Object>> keyMaps) {
+        if (keyMaps.isEmpty()) {
+            return;
+        }
+        pipelined(operations -> keyMaps.forEach((key, map) -> operations.opsForHash().putAll(key, map)));
+        invalidateLocal(keyMaps.keySet());
+    }
+
+    /**
+     * 批量设置多个Hash中不存在的项(HSETNX), 已存在的项保持不变, 通过pipeline一次往返
+     *
+     * @param keyMaps 键 -> 项值对
+     * @return 写入的个数
+     */
+    public long hSetMapsIfAbsent(@NonNull Map<String, Map<String, Object>> keyMaps) {
+        if (keyMaps.isEmpty()) {
+            return 0L;
+        }
+        List<Boolean> results = pipelined(operations -> keyMaps.forEach((key, map) ->
+                map.forEach((item, value) -> operations.opsForHash().putIfAbsent(key, item, value))));
+        invalidateLocal(keyMaps.keySet());
+        return results.stream().filter(Boolean.TRUE::equals).count();
+    }
+
+    /**
+     * 批量删除多个Hash中的项, 通过pipeline一次往返
+     *
+     * @param keyItems 键 -> 项
+     * @return 删除的个数
+     */
+    public Long hDels(@NonNull Map<String, ? extends Collection<String>> keyItems) {
+        if (keyItems.isEmpty()) {
+            return 0L;
+        }
+        List<Long> counts = pipelined(operations -> keyItems.forEach((key, items) ->
+                operations.opsForHash().delete(key, items.toArray())));
+        invalidateLocal(keyItems.keySet());
+        return counts.stream().mapToLong(count -> count == null ? 0L : count).sum();
+    }
+
+    /**
+     * 批量删除缓存
+     *
+     * @return 删除的个数
+     */
+    public Long mDel(@NonNull Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0L;
+        }
+        Long count = redisTemplate.delete(keys);
+        invalidateLocal(keys);
+        return count;
+    }
+
+    /**
+     * 按模式分批遍历key(SCAN), 不会像 KEYS 一样长时间阻塞Redis; 集群模式下逐个主节点遍历
+     *
+     * @param pattern   匹配模式, 如 user:profile:*
+     * @param batchSize 每批个数
+     * @param consumer  每批key的处理
+     * @return 遍历的个数
+     */
+    public long scan(@NonNull String pattern, int batchSize, @NonNull Consumer<List<String>> consumer) {
+        int size = Math.max(1, batchSize);
+        RedisSerializer<String> keySerializer = redisTemplate.getKeySerializer();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(size).build();
+        long[] scanned = {0L};
+
+        scanNodes(options, cursor -> {
+            List<String> batch = new ArrayList<>(size);
+            while (cursor.hasNext()) {
+                batch.add(keySerializer.deserialize(cursor.next()));
+                if (batch.size() >= size || !cursor.hasNext()) {
+                    consumer.accept(batch);
+                    scanned[0] += batch.size();
+                    batch = new ArrayList<>(size);
+                }
+            }
+        });
+        return scanned[0];
+    }
+
+    /**
+     * 按模式批量删除key, 默认每批 {@value EVICT_BATCH_SIZE} 个, 不限速
+     *
+     * @param pattern 匹配模式, 如 tenant:1001:*
+     * @return 删除的个数
+     */
+    public long evictByPattern(@NonNull String pattern) {
+        return evictByPattern(pattern, EVICT_BATCH_SIZE, 0L, null);
+    }
+
+    /**
+     * 按模式批量删除key: 使用 SCAN 游标分批遍历, 每批通过pipeline执行 UNLINK 由Redis后台释放内存,
+     * 不会像 KEYS 一样长时间阻塞Redis; 集群模式下逐个主节点遍历
+     *
+     * @param pattern          匹配模式, 如 tenant:1001:*
+     * @param batchSize        每批扫描/删除的个数
+     * @param maxKeysPerSecond 每秒最多删除的个数, 超过时暂停; 小于等于0则不限速
+     * @param progress         每批删除后回调, 参数为累计删除个数; 可为null
+     * @return 删除的个数
+     */
+    public long evictByPattern(@NonNull String pattern, int batchSize, long maxKeysPerSecond, LongConsumer progress) {
+        int size = Math.max(1, batchSize);
+        RedisSerializer<String> keySerializer = redisTemplate.getKeySerializer();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(size).build();
+        long start = System.currentTimeMillis();
+        long[] evicted = {0L};
+
+        try {
+            scanNodes(options, cursor -> {
+                List<byte[]> batch = new ArrayList<>(size);
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() < size && cursor.hasNext()) {
+                        continue;
+                    }
+                    unlink(batch);
+                    List<String> keys = new ArrayList<>(batch.size());
+                    for (byte[] rawKey : batch) {
+                        keys.add(keySerializer.deserialize(rawKey));
+                    }
+                    invalidateLocal(keys);
+                    evicted[0] += batch.size();
+                    batch.clear();
+                    if (progress != null) {
+                        progress.accept(evicted[0]);
+                    }
+                    if (maxKeysPerSecond > 0) {
+                        // 按限速计算当前应已耗费的时间, 提前完成时暂停补足
+                        long wait = evicted[0] * 1000L / maxKeysPerSecond - (System.currentTimeMillis() - start);
+                        if (wait > 0) {
+                            Thread.sleep(wait);
+                        }
+                    }
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("===[RedisService][evictByPattern] 删除被中断: {}, 已删除 {} 个", pattern, evicted[0]);
+        }
+        log.info("===[RedisService][evictByPattern] 删除完成: {}, 共 {} 个, 耗时 {}ms",
+                pattern, evicted[0], System.currentTimeMillis() - start);
+        return evicted[0];
+    }
+
+    /**
+     * zset批量添加
+     *
+     * @param key          键
+     * @param valueScores  元素及对应分数
+     * @return 新增的元素个数
+     */
+    public Long zAdd(@NonNull String key, @NonNull Map<Object, Double> valueScores) {
+        if (valueScores.isEmpty()) {
+            return 0L;
+        }
+        Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(valueScores.size());
+        valueScores.forEach((value, score) -> tuples.add(new DefaultTypedTuple<>(value, score)));
+        return redisTemplate.opsForZSet().add(key, tuples);
+    }
+
+    /**
+     * 多个zset批量添加, 通过pipeline一次往返
+     *
+     * @param keyValueScores 键 -> (元素 -> 分数)
+     */
+    public void zAdd(@NonNull Map<String, Map<Object, Double>> keyValueScores) {
+        if (keyValueScores.isEmpty()) {
+            return;
+        }
+        pipelined(operations -> keyValueScores.forEach((key, valueScores) -> {
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>(valueScores.size());
+            valueScores.forEach((value, score) -> tuples.add(new DefaultTypedTuple<>(value, score)));
+            operations.opsForZSet().add(key, tuples);
+        }));
+    }
+
+    /**
+     * 在pipeline中执行命令, 返回按命令顺序反序列化后的结果
+     */
+    private List pipelined(Consumer<RedisOperations<String, Object>> commands) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public Object execute(RedisOperations operations) {
+                commands.accept(operations);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 对匹配的key执行 SCAN, 逐个游标回调; 同一连接在遍历期间保持占用.
+     * 集群连接不支持跨节点 SCAN, 因此逐个主节点打开游标; 标记为失败的节点跳过
+     */
+    private <E extends Exception> void scanNodes(ScanOptions options, CursorCallback<E> callback) throws E {
+        RedisConnectionFactory factory = redisTemplate.getRequiredConnectionFactory();
+        RedisConnection connection = RedisConnectionUtils.getConnection(factory);
+        try {
+            if (connection instanceof RedisClusterConnection) {
+                RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+                for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+                    if (!node.isMaster() || node.isMarkedAsFail()) {
+                        continue;
+                    }
+                    try (Cursor<byte[]> cursor = clusterConnection.scan(node, options)) {
+                        callback.doInCursor(cursor);
+                    }
+                }
+            } else {
+                try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                    callback.doInCursor(cursor);
+                }
+            }
+        } finally {
+            RedisConnectionUtils.releaseConnection(connection, factory);
+        }
+    }
+
+    /**
+     * SCAN 游标处理
+     */
+    @FunctionalInterface
+    private interface CursorCallback<E extends Exception> {
+
+        void doInCursor(Cursor<byte[]> cursor) throws E;
+    }
+
+    /**
+     * 逐个key执行 UNLINK, 兼容集群模式下key分布在不同slot
+     */
+    private void unlink(List<byte[]> rawKeys) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[] rawKey : rawKeys) {
+                connection.keyCommands().unlink(rawKey);
+            }
+            return null;
+        });
+    }
+
+    private <T> List<T> convertAll(List<?> values, Class<T> type) {
+        List<T> result = new ArrayList<>(values.size());
+        for (Object value : values) {
+            result.add(value == null ? null : Convert.convert(type, value));
+        }
+        return result;
+    }
+
+    /**
+     * 写入后失效本地缓存(一级缓存并广播, 及热点key本地副本)
+     */
+    private void invalidateLocal(String key) {
+        nearCache.invalidate(key);
+        hotKeyDetector.invalidate(key);
+    }
+
+    /**
+     * 批量写入后失效本地缓存, 一级缓存只广播一条失效消息
+     */
+    private void invalidateLocal(Collection<String> keys) {
+        nearCache.invalidateAll(keys);
+        keys.forEach(hotKeyDetector::invalidate);
+    }
 }
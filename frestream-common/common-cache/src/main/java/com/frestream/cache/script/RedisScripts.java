@@ -0,0 +1,91 @@
+package com.frestream.cache.script;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @description:
+ *   Lua脚本注册表, 脚本位于 classpath:lua/ 下, 加载一次并缓存SHA1;
+ *   通过 RedisTemplate 执行时优先 EVALSHA, 服务端返回 NOSCRIPT 时自动回退 EVAL
+ *
+ * @author: TJ
+ * @date:  2022-09-09
+ **/
+public final class RedisScripts {
+
+    /**
+     * Hash批量写入并设置过期时间
+     */
+    public static final RedisScript<Long> HSET_EXPIRE = load("hset_expire", Long.class);
+    /**
+     * Set写入并设置过期时间
+     */
+    public static final RedisScript<Long> SADD_EXPIRE = load("sadd_expire", Long.class);
+    /**
+     * List尾部写入并设置过期时间
+     */
+    public static final RedisScript<Long> RPUSH_EXPIRE = load("rpush_expire", Long.class);
+    /**
+     * 递增并在首次创建时设置过期时间
+     */
+    public static final RedisScript<Long> INCR_EXPIRE = load("incr_expire", Long.class);
+    /**
+     * 值与期望值相同时删除
+     */
+    public static final RedisScript<Long> COMPARE_AND_DELETE = load("compare_and_delete", Long.class);
+    /**
+     * 值与期望值相同时重新设置过期时间
+     */
+    public static final RedisScript<Long> COMPARE_AND_EXPIRE = load("compare_and_expire", Long.class);
+    /**
+     * 令牌桶限流
+     */
+    public static final RedisScript<Long> TOKEN_BUCKET = load("token_bucket", Long.class);
+    /**
+     * 滑动窗口限流
+     */
+    public static final RedisScript<Long> SLIDING_WINDOW = load("sliding_window", Long.class);
+    /**
+     * 布隆过滤器写入
+     */
+    public static final RedisScript<Long> BLOOM_ADD = load("bloom_add", Long.class);
+    /**
+     * 延迟任务入队
+     */
+    public static final RedisScript<Long> DELAY_ENQUEUE = load("delay_enqueue", Long.class);
+    /**
+     * 批量领取到期的延迟任务
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> DELAY_CLAIM = load("delay_claim", List.class);
+    /**
+     * 确认延迟任务完成
+     */
+    public static final RedisScript<Long> DELAY_ACK = load("delay_ack", Long.class);
+    /**
+     * 延迟任务重新排队
+     */
+    public static final RedisScript<Long> DELAY_RETRY = load("delay_retry", Long.class);
+
+    private RedisScripts() {
+    }
+
+    /**
+     * 加载 classpath:lua/{name}.lua; 读取为静态脚本, 避免每次执行检查资源文件修改时间
+     */
+    public static <T> RedisScript<T> load(String name, Class<T> resultType) {
+        String path = "lua/" + name + ".lua";
+        try (InputStream inputStream = new ClassPathResource(path).getInputStream()) {
+            return RedisScript.of(StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8), resultType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lua脚本加载失败: " + path, e);
+        }
+    }
+}
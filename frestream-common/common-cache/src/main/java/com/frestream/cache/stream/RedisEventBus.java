@@ -0,0 +1,419 @@
+package com.frestream.cache.stream;
+
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.StrUtil;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * @description:
+ *   基于 Redis Stream 的轻量事件总线: 发布方可同步发布, 或放入本地缓冲由后台线程批量pipeline发布;
+ *   订阅方以消费组方式批量 XREADGROUP 读取, 在有界线程池中处理, 处理成功的消息批量 XACK.
+ *   消费者失败后未确认的消息超时由其他消费者认领(XPENDING + XCLAIM), 超过最大投递次数转入死信stream.
+ *   消息至少投递一次, 处理方需保证幂等.
+ *   后台线程按需启动: 首次异步发布时启动发布线程, 首次发布或订阅时启动裁剪; 未使用时不占用线程
+ *
+ * @author: TJ
+ * @date:  2022-09-23
+ **/
+@Slf4j(topic = "common-cache-RedisEventBus")
+@Component
+public class RedisEventBus {
+
+    /**
+     * 消息中事件内容的字段名
+     */
+    private static final String PAYLOAD = "payload";
+    private static final String DEAD_SUFFIX = ":dead";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StreamProperties properties;
+    /**
+     * 当前节点的消费者名称, 重启后不变, 避免消费组中堆积失效的消费者
+     */
+    private final String consumerName;
+    /**
+     * 异步发布缓冲区: [stream, 事件]
+     */
+    private final BlockingQueue<Object[]> outbox;
+    /**
+     * 发布过或订阅的stream, 定期裁剪
+     */
+    private final Set<String> streams = ConcurrentHashMap.newKeySet();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService publisher;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean publisherStarted = new AtomicBoolean();
+    private final AtomicBoolean trimStarted = new AtomicBoolean();
+    private volatile boolean running = true;
+
+    public RedisEventBus(RedisTemplate<String, Object> redisTemplate, StreamProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.consumerName = StrUtil.isBlank(properties.getConsumerName())
+                ? NetUtil.getLocalHostName() : properties.getConsumerName();
+        this.outbox = new ArrayBlockingQueue<>(Math.max(1, properties.getOutboxCapacity()));
+        this.publisher = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("event-bus-publish-%d").setDaemon(true).build());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("event-bus-schedule-%d").setDaemon(true).build());
+    }
+
+    /**
+     * 停止订阅, 发布缓冲区中剩余的事件, 确认已处理的消息, 移除没有待确认消息的消费者
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        scheduler.shutdownNow();
+        publisher.shutdownNow();
+        publisher.awaitTermination(5, TimeUnit.SECONDS);
+        flushOutbox();
+        for (Subscription subscription : subscriptions) {
+            subscription.reader.shutdownNow();
+            subscription.workers.shutdown();
+            subscription.workers.awaitTermination(5, TimeUnit.SECONDS);
+            subscription.ack();
+            subscription.removeConsumer();
+        }
+    }
+
+    // ================================ publish
+
+    /**
+     * 同步发布事件
+     *
+     * @return 消息id
+     */
+    public String publish(@NonNull String stream, Object event) {
+        track(stream);
+        RecordId id = redisTemplate.opsForStream().add(
+                StreamRecords.newRecord().in(stream).ofMap(Collections.singletonMap(PAYLOAD, event)));
+        return id == null ? null : id.getValue();
+    }
+
+    /**
+     * 批量发布事件, 通过pipeline一次往返
+     */
+    public void publishAll(@NonNull String stream, @NonNull Collection<?> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(events.size());
+        for (Object event : events) {
+            batch.add(new Object[]{stream, event});
+        }
+        publishBatch(batch);
+    }
+
+    /**
+     * 异步发布事件: 放入本地缓冲区后立即返回, 由后台线程批量发布; 进程异常退出时缓冲区中的事件会丢失
+     *
+     * @return 是否放入缓冲区, 缓冲区满时返回false
+     */
+    public boolean publishAsync(@NonNull String stream, Object event) {
+        if (publisherStarted.compareAndSet(false, true)) {
+            publisher.execute(this::publishLoop);
+        }
+        return outbox.offer(new Object[]{stream, event});
+    }
+
+    // ================================ subscribe
+
+    /**
+     * 以消费组方式订阅, 消费组不存在时从最新消息开始创建;
+     * handler 正常返回后确认消息, 抛出异常时不确认, 超时后重新投递
+     *
+     * @param stream  stream名称
+     * @param group   消费组, 同一组内每条消息只由一个消费者处理
+     * @param handler 事件处理
+     */
+    public void subscribe(@NonNull String stream, @NonNull String group, @NonNull Consumer<StreamEvent> handler) {
+        createGroup(stream, group);
+        track(stream);
+        Subscription subscription = new Subscription(stream, group, handler);
+        subscriptions.add(subscription);
+        subscription.reader.execute(subscription::readLoop);
+        scheduler.scheduleWithFixedDelay(subscription::reclaim, properties.getReclaimIntervalMillis(),
+                properties.getReclaimIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录需要裁剪的stream, 首次调用时启动定期裁剪
+     */
+    private void track(String stream) {
+        streams.add(stream);
+        if (properties.getMaxLen() > 0 && trimStarted.compareAndSet(false, true)) {
+            scheduler.scheduleWithFixedDelay(this::trim, properties.getTrimIntervalSeconds(),
+                    properties.getTrimIntervalSeconds(), TimeUnit.SECONDS);
+        }
+    }
+
+    private void createGroup(String stream, String group) {
+        byte[] rawKey = rawKey(stream);
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.streamCommands().xGroupCreate(rawKey, group, ReadOffset.latest(), true));
+        } catch (Exception e) {
+            // 消费组已存在
+            if (!String.valueOf(e.getMessage()).contains("BUSYGROUP")
+                    && (e.getCause() == null || !String.valueOf(e.getCause().getMessage()).contains("BUSYGROUP"))) {
+                throw e;
+            }
+        }
+    }
+
+    private void publishLoop() {
+        int batchSize = Math.max(1, properties.getPublishBatchSize());
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        while (running && !Thread.currentThread().isInterrupted()) {
+            try {
+                Object[] first = outbox.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                outbox.drainTo(batch, batchSize - 1);
+                publishBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("===[RedisEventBus][publish] 批量发布失败, 丢弃 {} 个事件", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushOutbox() {
+        List<Object[]> batch = new ArrayList<>();
+        outbox.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            publishBatch(batch);
+        } catch (Exception e) {
+            log.error("===[RedisEventBus][publish] 关闭时发布失败, 丢弃 {} 个事件", batch.size(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void publishBatch(List<Object[]> batch) {
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getHashValueSerializer();
+        byte[] rawField = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        List<MapRecord<byte[], byte[], byte[]>> records = new ArrayList<>(batch.size());
+        for (Object[] entry : batch) {
+            String stream = (String) entry[0];
+            track(stream);
+            records.add(StreamRecords.newRecord().in(rawKey(stream))
+                    .ofMap(Collections.singletonMap(rawField, valueSerializer.serialize(entry[1]))));
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisStreamCommands commands = connection.streamCommands();
+            records.forEach(record -> commands.xAdd(record, RedisStreamCommands.XAddOptions.none()));
+            return null;
+        });
+    }
+
+    /**
+     * 近似裁剪, 保留最近 maxLen 条消息
+     */
+    private void trim() {
+        for (String stream : streams) {
+            try {
+                redisTemplate.opsForStream().trim(stream, properties.getMaxLen(), true);
+            } catch (Exception e) {
+                log.error("===[RedisEventBus][trim] 裁剪失败: {}", stream, e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    /**
+     * 一个消费组订阅: 读取线程 + 有界处理线程池 + 待确认的消息id
+     */
+    private class Subscription {
+
+        private final String stream;
+        private final String group;
+        private final Consumer<StreamEvent> handler;
+        private final ExecutorService reader;
+        private final ThreadPoolExecutor workers;
+        /**
+         * 处理成功待批量确认的消息id
+         */
+        private final Queue<String> acks = new ConcurrentLinkedQueue<>();
+
+        private Subscription(String stream, String group, Consumer<StreamEvent> handler) {
+            this.stream = stream;
+            this.group = group;
+            this.handler = handler;
+            this.reader = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("event-bus-read-" + stream + "-%d").setDaemon(true).build());
+            int threads = Math.max(1, properties.getWorkerThreads());
+            this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, properties.getWorkerQueueSize())),
+                    new ThreadFactoryBuilder().setNameFormat("event-bus-" + stream + "-%d").setDaemon(true).build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+
+        @SuppressWarnings("unchecked")
+        private void readLoop() {
+            org.springframework.data.redis.connection.stream.Consumer consumer =
+                    org.springframework.data.redis.connection.stream.Consumer.from(group, consumerName);
+            StreamReadOptions options = StreamReadOptions.empty()
+                    .count(Math.max(1, properties.getReadBatchSize()))
+                    .block(Duration.ofMillis(properties.getBlockMillis()));
+            StreamOffset<String> offset = StreamOffset.create(stream, ReadOffset.lastConsumed());
+
+            while (running && !Thread.currentThread().isInterrupted()) {
+                try {
+                    ack();
+                    List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(consumer, options, offset);
+                    if (records != null) {
+                        records.forEach(this::dispatch);
+                    }
+                } catch (Exception e) {
+                    if (!running) {
+                        return;
+                    }
+                    log.error("===[RedisEventBus][read] 读取失败: {}#{}", stream, group, e);
+                    sleep(properties.getBlockMillis());
+                }
+            }
+        }
+
+        /**
+         * 认领超时未确认的消息; 超过最大投递次数的转入死信stream
+         */
+        private void reclaim() {
+            try {
+                PendingMessages pending = redisTemplate.opsForStream().pending(stream, group, Range.unbounded(),
+                        Math.max(1, properties.getReadBatchSize()));
+                Map<String, Long> deliveries = new LinkedHashMap<>();
+                for (PendingMessage message : pending) {
+                    if (message.getElapsedTimeSinceLastDelivery().toMillis() >= properties.getReclaimIdleMillis()) {
+                        deliveries.put(message.getIdAsString(), message.getTotalDeliveryCount());
+                    }
+                }
+                if (deliveries.isEmpty()) {
+                    return;
+                }
+
+                byte[] rawKey = rawKey(stream);
+                RecordId[] ids = deliveries.keySet().stream().map(RecordId::of).toArray(RecordId[]::new);
+                List<ByteRecord> claimed = redisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                        connection.streamCommands().xClaim(rawKey, group, consumerName,
+                                RedisStreamCommands.XClaimOptions.minIdleMs(properties.getReclaimIdleMillis()).ids(ids)));
+                if (claimed == null) {
+                    return;
+                }
+                for (ByteRecord byteRecord : claimed) {
+                    MapRecord<String, Object, Object> record = redisTemplate.opsForStream().deserializeRecord(byteRecord);
+                    Long delivered = deliveries.get(record.getId().getValue());
+                    if (delivered != null && delivered >= properties.getMaxDeliveries()) {
+                        deadLetter(record);
+                    } else {
+                        dispatch(record);
+                    }
+                }
+                log.info("===[RedisEventBus][reclaim] 认领超时消息: {}#{}, {} 个", stream, group, claimed.size());
+            } catch (Exception e) {
+                log.error("===[RedisEventBus][reclaim] 认领失败: {}#{}", stream, group, e);
+            }
+        }
+
+        private void dispatch(MapRecord<String, Object, Object> record) {
+            StreamEvent event = new StreamEvent()
+                    .setStream(stream)
+                    .setId(record.getId().getValue())
+                    .setPayload(record.getValue().get(PAYLOAD));
+            try {
+                workers.execute(() -> handle(event));
+            } catch (RejectedExecutionException e) {
+                // 已关闭, 消息超时后由其他消费者认领
+            }
+        }
+
+        private void handle(StreamEvent event) {
+            try {
+                handler.accept(event);
+                acks.add(event.getId());
+            } catch (Exception e) {
+                log.error("===[RedisEventBus][handle] 事件处理失败, 超时后重新投递: {}#{} {}", stream, group, event.getId(), e);
+            }
+        }
+
+        private void deadLetter(MapRecord<String, Object, Object> record) {
+            redisTemplate.opsForStream().add(StreamRecords.newRecord().in(stream + DEAD_SUFFIX).ofMap(record.getValue()));
+            redisTemplate.opsForStream().acknowledge(stream, group, record.getId());
+            log.warn("===[RedisEventBus][reclaim] 超过最大投递次数, 转入死信: {}#{} {}", stream, group, record.getId());
+        }
+
+        /**
+         * 一次 XACK 确认所有已处理的消息
+         */
+        private void ack() {
+            if (acks.isEmpty()) {
+                return;
+            }
+            List<String> ids = new ArrayList<>();
+            String id;
+            while ((id = acks.poll()) != null) {
+                ids.add(id);
+            }
+            try {
+                redisTemplate.opsForStream().acknowledge(stream, group, ids.toArray(new String[0]));
+            } catch (Exception e) {
+                log.error("===[RedisEventBus][ack] 确认失败, 超时后重新投递: {}#{}, {} 个", stream, group, ids.size(), e);
+            }
+        }
+
+        /**
+         * 移除当前消费者; 仍有未确认的消息时保留, 由其他消费者超时认领(删除消费者会一并丢弃其待确认记录)
+         */
+        private void removeConsumer() {
+            org.springframework.data.redis.connection.stream.Consumer consumer =
+                    org.springframework.data.redis.connection.stream.Consumer.from(group, consumerName);
+            try {
+                PendingMessages pending = redisTemplate.opsForStream().pending(stream, consumer, Range.unbounded(), 1L);
+                if (pending.isEmpty()) {
+                    redisTemplate.opsForStream().deleteConsumer(stream, consumer);
+                } else {
+                    log.info("===[RedisEventBus][shutdown] 存在未确认消息, 保留消费者: {}#{} {}", stream, group, consumerName);
+                }
+            } catch (Exception e) {
+                log.warn("===[RedisEventBus][shutdown] 移除消费者失败: {}#{} {}", stream, group, consumerName, e);
+            }
+        }
+
+        private void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.frestream.cache.stream;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * @description: 订阅收到的事件
+ *
+ * @author: TJ
+ * @date:  2022-09-23
+ **/
+@Data
+@Accessors(chain = true)
+public class StreamEvent {
+
+    /**
+     * stream名称
+     */
+    private String stream;
+    /**
+     * 消息id
+     */
+    private String id;
+    /**
+     * 事件内容
+     */
+    private Object payload;
+}
@@ -0,0 +1,66 @@
+package com.frestream.cache.stream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * @description: Redis Stream 事件总线配置
+ *
+ * @author: TJ
+ * @date:  2022-09-23
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.cache.stream")
+public class StreamProperties {
+
+    /**
+     * 当前节点的消费者名称, 为空时使用主机名; 重启后沿用同一名称, 同一主机运行多个实例时需分别配置
+     */
+    private String consumerName;
+    /**
+     * 每个stream保留的最大消息数(近似裁剪); 小于等于0则不裁剪
+     */
+    private long maxLen = 100000L;
+    /**
+     * 裁剪周期, 单位秒
+     */
+    private long trimIntervalSeconds = 60L;
+    /**
+     * 异步发布缓冲区容量, 满时 publishAsync 返回false
+     */
+    private int outboxCapacity = 10000;
+    /**
+     * 异步发布每次pipeline包含的消息数
+     */
+    private int publishBatchSize = 100;
+    /**
+     * 每次 XREADGROUP 读取的消息数
+     */
+    private int readBatchSize = 100;
+    /**
+     * XREADGROUP 阻塞等待时间, 单位毫秒
+     */
+    private long blockMillis = 2000L;
+    /**
+     * 每个订阅的处理线程数
+     */
+    private int workerThreads = 4;
+    /**
+     * 每个订阅的处理队列长度, 满时由读取线程处理, 暂停读取
+     */
+    private int workerQueueSize = 256;
+    /**
+     * 消息投递后超过该时间未确认, 视为消费者失败, 由其他消费者认领, 单位毫秒
+     */
+    private long reclaimIdleMillis = 60000L;
+    /**
+     * 检查待认领消息的周期, 单位毫秒
+     */
+    private long reclaimIntervalMillis = 30000L;
+    /**
+     * 最大投递次数, 超过后转入死信stream({stream}:dead)并确认
+     */
+    private int maxDeliveries = 5;
+}
@@ -0,0 +1,12 @@
+-- 布隆过滤器写入, 重建期间同时写入重建中的过滤器
+-- KEYS[1]: 过滤器
+-- KEYS[2]: 重建中的过滤器
+-- ARGV: 位偏移
+local rebuilding = redis.call('EXISTS', KEYS[2]) == 1
+for i = 1, #ARGV do
+    redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+    if rebuilding then
+        redis.call('SETBIT', KEYS[2], ARGV[i], 1)
+    end
+end
+return #ARGV
@@ -0,0 +1,7 @@
+-- 值与期望值相同时删除
+-- KEYS[1]: 键
+-- ARGV[1]: 期望值
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
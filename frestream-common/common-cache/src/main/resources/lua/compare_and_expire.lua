@@ -0,0 +1,8 @@
+-- 值与期望值相同时重新设置过期时间, 用于续期锁、租约等场景
+-- KEYS[1]: 键
+-- ARGV[1]: 期望值
+-- ARGV[2]: 过期时间, 单位秒
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('EXPIRE', KEYS[1], ARGV[2])
+end
+return 0
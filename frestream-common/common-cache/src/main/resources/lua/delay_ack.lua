@@ -0,0 +1,9 @@
+-- 确认延迟任务执行完成, 删除任务
+-- KEYS[1]: 执行中zset  KEYS[2]: 任务数据hash
+-- ARGV[1]: 任务id
+-- 返回: 1 删除成功, 0 任务已不在执行中(已超时重新投递或已确认)
+if redis.call('ZREM', KEYS[1], ARGV[1]) == 0 then
+    return 0
+end
+redis.call('HDEL', KEYS[2], ARGV[1])
+return 1
@@ -0,0 +1,36 @@
+-- 批量领取到期的延迟任务: 先将可见性超时的执行中任务重新投递, 再将到期任务移入执行中集合
+-- KEYS[1]: 待执行zset  KEYS[2]: 执行中zset  KEYS[3]: 任务数据hash
+-- ARGV[1]: 当前时间, 毫秒时间戳
+-- ARGV[2]: 最多领取个数
+-- ARGV[3]: 可见性截止时间, 毫秒时间戳
+-- 返回: {重新投递个数, 任务id, 到期时间, 任务数据, ...}
+local now = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+
+local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now, 'LIMIT', 0, limit)
+if #expired > 0 then
+    for i = 1, #expired do
+        redis.call('ZADD', KEYS[1], now, expired[i])
+    end
+    redis.call('ZREM', KEYS[2], unpack(expired))
+end
+
+local result = {#expired}
+local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'WITHSCORES', 'LIMIT', 0, limit)
+if #due == 0 then
+    return result
+end
+
+local ids = {}
+for i = 1, #due, 2 do
+    ids[#ids + 1] = due[i]
+    redis.call('ZADD', KEYS[2], ARGV[3], due[i])
+end
+redis.call('ZREM', KEYS[1], unpack(ids))
+local payloads = redis.call('HMGET', KEYS[3], unpack(ids))
+for i = 1, #ids do
+    result[#result + 1] = ids[i]
+    result[#result + 1] = due[i * 2]
+    result[#result + 1] = payloads[i]
+end
+return result
@@ -0,0 +1,9 @@
+-- 延迟任务入队, 任务已存在时覆盖数据并按新的到期时间重新排队
+-- KEYS[1]: 待执行zset  KEYS[2]: 执行中zset  KEYS[3]: 任务数据hash
+-- ARGV[1]: 任务id
+-- ARGV[2]: 到期时间, 毫秒时间戳
+-- ARGV[3]: 任务数据
+-- 返回: 1 新任务, 0 覆盖已有任务
+redis.call('ZREM', KEYS[2], ARGV[1])
+redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+return redis.call('HSET', KEYS[3], ARGV[1], ARGV[3])
@@ -0,0 +1,10 @@
+-- 执行中的延迟任务放回待执行集合, 用于失败重试
+-- KEYS[1]: 待执行zset  KEYS[2]: 执行中zset
+-- ARGV[1]: 任务id
+-- ARGV[2]: 新的到期时间, 毫秒时间戳
+-- 返回: 1 成功, 0 任务已不在执行中
+if redis.call('ZREM', KEYS[2], ARGV[1]) == 0 then
+    return 0
+end
+redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+return 1
@@ -0,0 +1,12 @@
+-- Hash批量写入并设置过期时间
+-- KEYS[1]: 键
+-- ARGV[1]: 过期时间(秒), 小于等于0不设置
+-- ARGV[2..]: field, value 交替
+local count = 0
+for i = 2, #ARGV, 2 do
+    count = count + redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+end
+if tonumber(ARGV[1]) > 0 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return count
@@ -0,0 +1,9 @@
+-- 递增, key未设置过期时间时(首次创建)设置过期时间
+-- KEYS[1]: 键
+-- ARGV[1]: 增量
+-- ARGV[2]: 过期时间(秒), 小于等于0不设置
+local value = redis.call('INCRBY', KEYS[1], ARGV[1])
+if tonumber(ARGV[2]) > 0 and redis.call('TTL', KEYS[1]) == -1 then
+    redis.call('EXPIRE', KEYS[1], ARGV[2])
+end
+return value
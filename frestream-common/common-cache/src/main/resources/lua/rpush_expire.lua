@@ -0,0 +1,12 @@
+-- List尾部写入并设置过期时间
+-- KEYS[1]: 键
+-- ARGV[1]: 过期时间(秒), 小于等于0不设置
+-- ARGV[2..]: 值
+local size = 0
+for i = 2, #ARGV do
+    size = redis.call('RPUSH', KEYS[1], ARGV[i])
+end
+if tonumber(ARGV[1]) > 0 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return size
@@ -0,0 +1,12 @@
+-- Set写入并设置过期时间
+-- KEYS[1]: 键
+-- ARGV[1]: 过期时间(秒), 小于等于0不设置
+-- ARGV[2..]: 值
+local count = 0
+for i = 2, #ARGV do
+    count = count + redis.call('SADD', KEYS[1], ARGV[i])
+end
+if tonumber(ARGV[1]) > 0 then
+    redis.call('EXPIRE', KEYS[1], ARGV[1])
+end
+return count
@@ -0,0 +1,35 @@
+-- 滑动窗口限流: 按上一窗口剩余比例加权估算当前滑动窗口内的请求数
+-- KEYS[1]: 窗口计数
+-- ARGV[1]: 窗口大小(毫秒)
+-- ARGV[2]: 窗口内允许的请求数
+-- ARGV[3]: 申请数, 剩余不足时返回剩余数
+-- 返回: 获取到的数量, 0 表示被限流
+redis.replicate_commands()
+local window = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local current = math.floor(now / window)
+
+local data = redis.call('HMGET', KEYS[1], 'window', 'count', 'previous')
+local last = tonumber(data[1])
+local count = tonumber(data[2]) or 0
+local previous = tonumber(data[3]) or 0
+if last == nil then
+    count = 0
+    previous = 0
+elseif last == current - 1 then
+    previous = count
+    count = 0
+elseif last ~= current then
+    count = 0
+    previous = 0
+end
+
+local used = previous * (1 - (now % window) / window) + count
+local granted = math.max(0, math.min(requested, math.floor(limit - used)))
+count = count + granted
+redis.call('HSET', KEYS[1], 'window', current, 'count', count, 'previous', previous)
+redis.call('PEXPIRE', KEYS[1], window * 2)
+return granted
@@ -0,0 +1,27 @@
+-- 令牌桶限流, 使用Redis服务端时间, 避免各节点时钟不一致
+-- KEYS[1]: 桶
+-- ARGV[1]: 每秒生成令牌数
+-- ARGV[2]: 桶容量
+-- ARGV[3]: 申请令牌数, 剩余不足时返回剩余的整数部分
+-- 返回: 获取到的令牌数, 0 表示被限流
+redis.replicate_commands()
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'timestamp')
+local tokens = tonumber(bucket[1])
+local timestamp = tonumber(bucket[2])
+if tokens == nil or timestamp == nil then
+    tokens = capacity
+    timestamp = now
+end
+tokens = math.min(capacity, tokens + math.max(0, now - timestamp) * rate / 1000)
+
+local granted = math.min(requested, math.floor(tokens))
+tokens = tokens - granted
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'timestamp', now)
+redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000)
+return granted
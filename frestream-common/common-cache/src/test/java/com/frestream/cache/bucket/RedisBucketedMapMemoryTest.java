@@ -0,0 +1,139 @@
+package com.frestream.cache.bucket;
+
+import com.frestream.cache.codec.RedisCodecProperties;
+import com.frestream.cache.hotkey.HotKeyDetector;
+import com.frestream.cache.hotkey.HotKeyProperties;
+import com.frestream.cache.near.NearCache;
+import com.frestream.cache.near.NearCacheProperties;
+import com.frestream.cache.redis.RedisConfig;
+import com.frestream.cache.redis.RedisService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @description:
+ *   分桶Map内存对比, 需要可用的Redis(会执行 FLUSHDB, 请使用空库):
+ *   mvn test -pl frestream-common/common-cache -DskipTests=false -Dfrestream.redis.host=127.0.0.1 -Dtest=RedisBucketedMapMemoryTest
+ *
+ * @author: TJ
+ * @date:  2022-09-21
+ **/
+@EnabledIfSystemProperty(named = "frestream.redis.host", matches = ".+")
+class RedisBucketedMapMemoryTest {
+
+    private static final int COUNT = 100_000;
+    private static final int BUCKET_COUNT = COUNT / 100;
+
+    private static LettuceConnectionFactory factory;
+    private static RedisTemplate<String, Object> redisTemplate;
+    private static RedisService redisService;
+
+    @BeforeAll
+    static void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("frestream.redis.host"), Integer.getInteger("frestream.redis.port", 6379));
+        configuration.setDatabase(Integer.getInteger("frestream.redis.database", 15));
+        factory = new LettuceConnectionFactory(configuration);
+        factory.afterPropertiesSet();
+
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(factory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setHashKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(RedisConfig.valueSerializer(new RedisCodecProperties()));
+        redisTemplate.setHashValueSerializer(redisTemplate.getValueSerializer());
+        redisTemplate.afterPropertiesSet();
+        redisService = new RedisService(redisTemplate,
+                new NearCache(new NearCacheProperties(), redisTemplate, null),
+                new HotKeyDetector(new HotKeyProperties()));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        flush();
+        factory.destroy();
+    }
+
+    @Test
+    void smallValuesUseLessMemoryInBuckets() {
+        Map<String, Object> values = new HashMap<>(COUNT * 4 / 3 + 1);
+        for (int i = 0; i < COUNT; i++) {
+            values.put("user:visits:" + i, (long) i * 31);
+        }
+
+        flush();
+        long base = usedMemory();
+        redisService.mSet(values);
+        long plain = usedMemory() - base;
+
+        flush();
+        base = usedMemory();
+        RedisBucketedMap map = new RedisBucketedMap(redisService, "visits", BUCKET_COUNT);
+        Map<String, Object> byId = new HashMap<>(COUNT * 4 / 3 + 1);
+        values.forEach((key, value) -> byId.put(key.substring("user:visits:".length()), value));
+        map.mSet(byId);
+        long bucketed = usedMemory() - base;
+
+        System.out.printf("===[RedisBucketedMapMemoryTest] %d 个: String key %d 字节, 分桶 %d 字节 (%.1f%%), 编码 %s%n",
+                COUNT, plain, bucketed, bucketed * 100.0 / plain, encoding(map.bucketKey("0")));
+        assertEquals("listpack", normalize(encoding(map.bucketKey("0"))));
+        assertTrue(bucketed < plain / 2);
+    }
+
+    @Test
+    void migrateKeepsNewerBucketValues() {
+        flush();
+        RedisBucketedMap map = new RedisBucketedMap(redisService, "profile", 16);
+        redisService.set("user:profile:1", "old");
+        redisService.set("user:profile:2", "old");
+        map.set("1", "new");
+
+        long migrated = map.migrate("user:profile:*", key -> key.substring("user:profile:".length()), 100, true);
+
+        assertEquals(1L, migrated);
+        assertEquals("new", map.get("1"));
+        assertEquals("old", map.get("2"));
+        assertEquals(Boolean.FALSE, redisTemplate.hasKey("user:profile:1"));
+    }
+
+    private static void flush() {
+        try (RedisConnection connection = factory.getConnection()) {
+            connection.serverCommands().flushDb();
+        }
+    }
+
+    private static long usedMemory() {
+        try (RedisConnection connection = factory.getConnection()) {
+            Properties info = connection.serverCommands().info("memory");
+            return Long.parseLong(info.getProperty("used_memory"));
+        }
+    }
+
+    private static String encoding(String key) {
+        try (RedisConnection connection = factory.getConnection()) {
+            return connection.keyCommands().encodingOf(key.getBytes(StandardCharsets.UTF_8)).raw();
+        }
+    }
+
+    /**
+     * Redis 7 以前的紧凑编码为 ziplist
+     */
+    private static String normalize(String encoding) {
+        return encoding.equalsIgnoreCase("ziplist") ? "listpack" : encoding.toLowerCase();
+    }
+}
@@ -0,0 +1,131 @@
+package com.frestream.cache.codec;
+
+import lombok.Data;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description:
+ *   value序列化对比: 紧凑格式与 GenericJackson2JsonRedisSerializer 的编码/解码耗时, 启动时输出每个值的字节数.
+ *   运行: mvn test-compile -pl frestream-common/common-cache 后执行本类的 main 方法
+ *
+ * @author: TJ
+ * @date:  2022-09-06
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompactRedisSerializerBenchmark {
+
+    @Data
+    public static class Order {
+        private Long id;
+        private String orderNo;
+        private Long userId;
+        private BigDecimal amount;
+        private Integer status;
+        private Date createTime;
+        private List<Item> items;
+    }
+
+    @Data
+    public static class Item {
+        private Long skuId;
+        private String name;
+        private Integer quantity;
+        private BigDecimal price;
+    }
+
+    /**
+     * single: 单个对象; list: 50个对象, 超过压缩阈值
+     */
+    @Param({"single", "list"})
+    private String payload;
+
+    private Object value;
+    private RedisSerializer<Object> json;
+    private RedisSerializer<Object> compact;
+    private byte[] jsonBytes;
+    private byte[] compactBytes;
+
+    @Setup
+    public void setUp() {
+        RedisCodecProperties properties = new RedisCodecProperties();
+        properties.setType("compact");
+        properties.getClassIds().put(CompactRedisSerializer.USER_CLASS_ID_BEGIN, Order.class.getName());
+        compact = new CompactRedisSerializer(properties);
+        json = new GenericJackson2JsonRedisSerializer();
+
+        if ("single".equals(payload)) {
+            value = order(1);
+        } else {
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                orders.add(order(i));
+            }
+            value = orders;
+        }
+        jsonBytes = json.serialize(value);
+        compactBytes = compact.serialize(value);
+        System.out.printf("%n===[CompactRedisSerializerBenchmark] %s: json %d 字节, compact %d 字节 (%.1f%%)%n",
+                payload, jsonBytes.length, compactBytes.length, compactBytes.length * 100.0 / jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return json.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] compactEncode() {
+        return compact.serialize(value);
+    }
+
+    @Benchmark
+    public Object jsonDecode() {
+        return json.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Object compactDecode() {
+        return compact.deserialize(compactBytes);
+    }
+
+    private static Order order(int i) {
+        Order order = new Order();
+        order.setId(100000L + i);
+        order.setOrderNo("SO2022090600" + i);
+        order.setUserId(20000L + i);
+        order.setAmount(new BigDecimal("199.90"));
+        order.setStatus(1);
+        order.setCreateTime(new Date(1662436800000L + i * 60_000L));
+        List<Item> items = new ArrayList<>();
+        for (int j = 0; j < 3; j++) {
+            Item item = new Item();
+            item.setSkuId(300000L + j);
+            item.setName("商品" + j);
+            item.setQuantity(j + 1);
+            item.setPrice(new BigDecimal("66.63"));
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CompactRedisSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
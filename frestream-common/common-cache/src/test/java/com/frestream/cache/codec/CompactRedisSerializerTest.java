@@ -0,0 +1,173 @@
+package com.frestream.cache.codec;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @description: 紧凑序列化的往返、嵌套类型、数字格式与历史JSON兼容
+ *
+ * @author: TJ
+ * @date:  2022-09-06
+ **/
+class CompactRedisSerializerTest {
+
+    @Data
+    @NoArgsConstructor
+    public static class User {
+        private Long id;
+        private String name;
+        private Object extra;
+        private List<User> friends;
+
+        User(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer(properties(1024));
+
+    @Test
+    void roundTripsRegisteredTypes() {
+        for (Object value : Arrays.asList("缓存", 2.5F, true, (short) 3, (byte) 4, new BigDecimal("1.10"),
+                new HashMap<>(Collections.singletonMap("k", "v")), new ArrayList<>(Arrays.asList("a", "b")),
+                new LinkedHashSet<>(Arrays.asList("x", "y")))) {
+            Object result = serializer.deserialize(serializer.serialize(value));
+            assertEquals(value, result);
+            assertEquals(value.getClass(), result.getClass());
+        }
+        assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    @Test
+    void keepsNestedTypes() {
+        User user = new User(1L, "a");
+        user.setExtra(new User(2L, "b"));
+        user.setFriends(Arrays.asList(new User(3L, "c"), new User(4L, "d")));
+
+        User result = (User) serializer.deserialize(serializer.serialize(user));
+        assertEquals(user, result);
+        assertInstanceOf(User.class, result.getExtra());
+
+        List<User> users = Arrays.asList(new User(5L, "e"), new User(6L, "f"));
+        Object list = serializer.deserialize(serializer.serialize(users));
+        assertInstanceOf(ArrayList.class, list);
+        assertEquals(users, list);
+        assertInstanceOf(User.class, ((List<?>) list).get(0));
+
+        Map<String, User> map = Collections.singletonMap("g", new User(7L, "g"));
+        Object mapResult = serializer.deserialize(serializer.serialize(map));
+        assertEquals(map, mapResult);
+        assertInstanceOf(User.class, ((Map<?, ?>) mapResult).get("g"));
+    }
+
+    @Test
+    void writesNumbersAsAscii() {
+        assertArrayEquals("42".getBytes(StandardCharsets.US_ASCII), serializer.serialize(42));
+        assertArrayEquals("-7".getBytes(StandardCharsets.US_ASCII), serializer.serialize(-7L));
+        assertArrayEquals("1.5".getBytes(StandardCharsets.US_ASCII), serializer.serialize(1.5D));
+
+        // INCR 之后的值同样可以读取, 整数按大小还原为 Integer 或 Long
+        assertEquals(43, serializer.deserialize("43".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(1L << 40, serializer.deserialize(serializer.serialize(1L << 40)));
+        assertEquals(1.5D, serializer.deserialize(serializer.serialize(1.5D)));
+        assertEquals(Double.NaN, serializer.deserialize(serializer.serialize(Double.NaN)));
+    }
+
+    @Test
+    void compressesLargeValues() {
+        CompactRedisSerializer compressing = new CompactRedisSerializer(properties(64));
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new User(i, "user-" + i));
+        }
+        byte[] compressed = compressing.serialize(users);
+        assertEquals(0x06, compressed[0]);
+        assertTrue(compressed.length < new CompactRedisSerializer(properties(0)).serialize(users).length);
+        assertEquals(users, compressing.deserialize(compressed));
+    }
+
+    @Test
+    void readsJsonWrittenBeforeSwitch() {
+        GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+        User user = new User(8L, "h");
+        assertEquals(user, serializer.deserialize(json.serialize(user)));
+        assertEquals("text", serializer.deserialize(json.serialize("text")));
+        assertEquals(9, serializer.deserialize(json.serialize(9L)));
+    }
+
+    @Test
+    void usesRegisteredClassIds() {
+        RedisCodecProperties properties = properties(0);
+        properties.getClassIds().put(CompactRedisSerializer.USER_CLASS_ID_BEGIN, User.class.getName());
+        CompactRedisSerializer registered = new CompactRedisSerializer(properties);
+
+        User user = new User(10L, "i");
+        user.setExtra(new User(11L, "j"));
+        user.setFriends(Collections.singletonList(new User(12L, "k")));
+        byte[] bytes = registered.serialize(user);
+        assertTrue(bytes.length < serializer.serialize(user).length);
+        assertFalse(contains(bytes, User.class.getName()));
+        assertEquals(user, registered.deserialize(bytes));
+
+        // 根对象的类型只在头中, 内容中不重复写入类名
+        byte[] unregistered = new CompactRedisSerializer(properties(0)).serialize(new User(13L, "l"));
+        assertEquals(1, count(unregistered, User.class.getName()));
+        assertFalse(contains(unregistered, "@class"));
+    }
+
+    @Test
+    void readsRootTypedFormat() throws Exception {
+        ObjectMapper legacy = new ObjectMapper(new SmileFactory());
+        legacy.activateDefaultTyping(legacy.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        User user = new User(14L, "m");
+        user.setExtra(new User(15L, "n"));
+        byte[] name = User.class.getName().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x03);
+        out.write(0);
+        out.write(name.length);
+        out.write(name);
+        out.write(legacy.writeValueAsBytes(user));
+
+        assertEquals(user, serializer.deserialize(out.toByteArray()));
+    }
+
+    private static boolean contains(byte[] bytes, String text) {
+        return count(bytes, text) > 0;
+    }
+
+    private static int count(byte[] bytes, String text) {
+        String content = new String(bytes, StandardCharsets.ISO_8859_1);
+        int count = 0;
+        for (int i = content.indexOf(text); i >= 0; i = content.indexOf(text, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static RedisCodecProperties properties(int compressThreshold) {
+        RedisCodecProperties properties = new RedisCodecProperties();
+        properties.setType("compact");
+        properties.setCompressThreshold(compressThreshold);
+        return properties;
+    }
+}
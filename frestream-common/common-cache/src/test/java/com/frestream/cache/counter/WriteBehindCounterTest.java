@@ -0,0 +1,108 @@
+package com.frestream.cache.counter;
+
+import com.frestream.cache.redis.RedisService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @description: 刷入失败时的重试; 使用在 closePipeline 时抛出指定异常的连接, 不需要Redis
+ *
+ * @author: TJ
+ * @date:  2022-09-20
+ **/
+class WriteBehindCounterTest {
+
+    /**
+     * pipeline中收到的 INCRBY 的key
+     */
+    private final List<String> incrKeys = new ArrayList<>();
+    private RuntimeException closePipelineError;
+    private final WriteBehindCounter counter = new WriteBehindCounter(
+            new RedisService(redisTemplate(), null, null), new CounterProperties());
+
+    @Test
+    void retriesOnlyKeysWithoutReply() {
+        counter.incr("a", 1L);
+        counter.incr("b", 2L);
+        counter.incr("c", 3L);
+        // a 成功, b 失败, c 没有回复
+        closePipelineError = new RedisPipelineException("partial", Arrays.asList(1L, new QueryTimeoutException("b")));
+
+        counter.flush();
+        assertEquals(Arrays.asList("a", "b", "c"), incrKeys);
+        assertEquals(0L, counter.pendingDelta("a"));
+        assertEquals(2L, counter.pendingDelta("b"));
+        assertEquals(3L, counter.pendingDelta("c"));
+    }
+
+    @Test
+    void retriesWholeBatchWhenRepliesAreUnknown() {
+        counter.incr("a", 1L);
+        counter.decr("b", 2L);
+        closePipelineError = new QueryTimeoutException("timeout");
+
+        counter.flush();
+        assertEquals(Arrays.asList("a", "b"), incrKeys);
+        assertEquals(1L, counter.pendingDelta("a"));
+        assertEquals(-2L, counter.pendingDelta("b"));
+    }
+
+    private RedisTemplate<String, Object> redisTemplate() {
+        RedisConnection connection = proxy(RedisConnection.class, (method, args) -> {
+            switch (method) {
+                case "incrBy":
+                    incrKeys.add(new String((byte[]) args[0]));
+                    return null;
+                case "closePipeline":
+                    throw closePipelineError;
+                default:
+                    return null;
+            }
+        });
+        RedisConnectionFactory factory = proxy(RedisConnectionFactory.class,
+                (method, args) -> "getConnection".equals(method) ? connection : null);
+
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(factory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    /**
+     * 按方法名应答的接口代理, Object 的方法按对象标识处理, boolean 返回 false
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "equals":
+                    return p == args[0];
+                case "toString":
+                    return type.getSimpleName() + "Proxy";
+                default:
+                    break;
+            }
+            Object result = handler.invoke(method.getName(), args);
+            return result == null && method.getReturnType() == boolean.class ? false : result;
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.frestream.cache.near;
+
+import com.frestream.cache.codec.RedisCodecProperties;
+import com.frestream.cache.redis.RedisConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @description: 一级缓存批量失效消息, 不需要Redis
+ *
+ * @author: TJ
+ * @date:  2022-09-05
+ **/
+class NearCacheTest {
+
+    private final RedisSerializer<Object> serializer = RedisConfig.valueSerializer(new RedisCodecProperties());
+    private final RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+
+    {
+        redisTemplate.setValueSerializer(serializer);
+    }
+
+    @Test
+    void batchInvalidationIsOneMessage() {
+        NearCache sender = nearCache();
+        NearCache receiver = nearCache();
+        receiver.get("user:1", () -> "a");
+        receiver.get("user:2", () -> "b");
+        receiver.get("order:1", () -> "c");
+
+        Object message = sender.invalidateMessage(Arrays.asList("user:1", "other:1", "user:2"));
+        assertInstanceOf(List.class, message);
+        assertEquals(3, ((List<?>) message).size());
+
+        receiver.onMessage(message(message), null);
+        assertEquals("x", receiver.get("user:1", () -> "x"));
+        assertEquals("y", receiver.get("user:2", () -> "y"));
+        assertEquals("c", receiver.get("order:1", () -> "z"));
+    }
+
+    @Test
+    void singleKeyKeepsStringFormat() {
+        NearCache sender = nearCache();
+        NearCache receiver = nearCache();
+        receiver.get("user:1", () -> "a");
+
+        Object message = sender.invalidateMessage(Arrays.asList("user:1", "other:1"));
+        assertInstanceOf(String.class, message);
+        assertEquals(sender.invalidateMessage("user:1"), message);
+
+        receiver.onMessage(message(message), null);
+        assertEquals("x", receiver.get("user:1", () -> "x"));
+        assertNull(sender.invalidateMessage(Collections.singletonList("other:1")));
+    }
+
+    @Test
+    void ownBatchMessageIsIgnored() {
+        NearCache cache = nearCache();
+        Object message = cache.invalidateMessage(Arrays.asList("user:1", "user:2"));
+        cache.get("user:1", () -> "a");
+
+        cache.onMessage(message(message), null);
+        assertEquals("a", cache.get("user:1", () -> "x"));
+    }
+
+    private NearCache nearCache() {
+        NearCacheProperties properties = new NearCacheProperties();
+        properties.setEnabled(true);
+        properties.setPrefixes(Arrays.asList("user:", "order:"));
+        return new NearCache(properties, redisTemplate, null);
+    }
+
+    private DefaultMessage message(Object body) {
+        byte[] channel = "frestream:cache:near:invalidate".getBytes(StandardCharsets.UTF_8);
+        return new DefaultMessage(channel, serializer.serialize(body));
+    }
+}
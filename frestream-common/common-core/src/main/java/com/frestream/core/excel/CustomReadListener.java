@@ -5,7 +5,6 @@ import cn.hutool.core.util.StrUtil;
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.read.listener.ReadListener;
 import com.alibaba.excel.util.ListUtils;
-import com.frestream.core.utils.JsonUtil;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -30,9 +29,9 @@ public class CustomReadListener<T> implements ReadListener<T> {
      */
     private final List<ExcelFailResult> failResults = new ArrayList<>();
     /**
-     * 校验字段集合
+     * 按DTO类编译的校验器, 为null时不校验
      */
-    private List<Field> validFields;
+    private ExcelValidator<T> validator;
     /**
      * 消费者函数, 用于处理读取到的每一行数据
      */
@@ -50,22 +49,15 @@ public class CustomReadListener<T> implements ReadListener<T> {
     @Override
     public void invoke(T data, AnalysisContext context) {
 
-        if (CollUtil.isNotEmpty(validFields)) {
-
-            String json = JsonUtil.toJson(data);
-            for (Field field : validFields) {
-                String fieldName = field.getName();
-                String fieldValue = JsonUtil.getNodeValue(json, fieldName);
-
-                // 根据Excel注解属性作对应校验
-                String checkMsg = ExcelAnnotationHandler.checkValidity(field.getAnnotation(Excel.class), fieldValue);
-                if (StrUtil.isNotBlank(checkMsg)) {
-                    failResults.add(new ExcelFailResult()
-                            .setRowNUm(context.readRowHolder().getRowIndex())
-                            .setFailMessage(checkMsg)
-                            .setRowData(data));
-                    return;
-                }
+        if (validator != null) {
+            // 根据Excel注解属性作对应校验
+            String checkMsg = validator.validate(data);
+            if (StrUtil.isNotBlank(checkMsg)) {
+                failResults.add(new ExcelFailResult()
+                        .setRowNUm(context.readRowHolder().getRowIndex())
+                        .setFailMessage(checkMsg)
+                        .setRowData(data));
+                return;
             }
         }
         cachedDataList.add(data);
@@ -83,7 +75,11 @@ public class CustomReadListener<T> implements ReadListener<T> {
     }
 
     public void setValidFields(List<Field> validFields) {
-        this.validFields = validFields;
+        setValidator(CollUtil.isEmpty(validFields) ? null : ExcelValidator.of(validFields));
+    }
+
+    public void setValidator(ExcelValidator<T> validator) {
+        this.validator = validator == null || validator.isEmpty() ? null : validator;
     }
 
     public List<ExcelFailResult> getFailResults() {
@@ -2,14 +2,19 @@ package com.frestream.core.excel;
 
 import cn.hutool.core.util.StrUtil;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.BiFunction;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * @description: Excel注解属性校验
- * 
+ * @description: Excel注解属性校验, 每个注解预先编译为校验规则: 正则与日期格式只编译一次, 提示语预先拼好, 不适用的校验直接跳过
+ *
  * @author: TJ
  * @date:  2022-05-26
  **/
@@ -22,8 +27,10 @@ public class ExcelAnnotationHandler {
     private static final String REGEXP_TIP = "内容不符合要求";
     private static final String DATE_FORMAT_TIP = "日期时间格式不符合要求";
 
-    // 属性校验函数集合
-    private static final List<BiFunction<Excel, String, String>> checkFunction = new ArrayList<>();
+    /**
+     * 按注解缓存的校验规则, 用于直接传入字段值的校验
+     */
+    private static final Map<Excel, Rule> RULES = new ConcurrentHashMap<>();
 
     /**
      * 执行校验函数
@@ -32,58 +39,18 @@ public class ExcelAnnotationHandler {
      * @return 校验信息
      */
     public static String checkValidity(Excel excel, String fieldValue) {
-        for (BiFunction<Excel, String, String> biFunction : checkFunction) {
-            String checkMsg = biFunction.apply(excel, fieldValue);
-            if (StrUtil.isNotBlank(checkMsg)) {
-                return checkMsg;
-            }
-        }
-        return null;
+        return RULES.computeIfAbsent(excel, e -> compile(e, String.class)).check(fieldValue);
     }
 
-    private static final BiFunction<Excel, String, String> require = (excel, fieldValue) -> {
-        if (excel.required()) {
-            if (StrUtil.isBlank(fieldValue) || "null".equals(fieldValue.trim())) {
-                return getTips(excel, REQUIRE_TIP);
-            }
-        }
-        return null;
-    };
-
-    private static final BiFunction<Excel, String, String> min = (excel, fieldValue) -> {
-        if (excel.min() > 0) {
-            if (fieldValue != null && fieldValue.length() < excel.min()) {
-                return getTips(excel, MIN_TIP);
-            }
-        }
-        return null;
-    };
-
-    private static final BiFunction<Excel, String, String> max = (excel, fieldValue) -> {
-        if (excel.max() > 0) {
-            if (fieldValue != null && fieldValue.length() > excel.max()) {
-                return getTips(excel, MAX_TIP);
-            }
-        }
-        return null;
-    };
-
-    private static final BiFunction<Excel, String, String> regexp = (excel, fieldValue) -> {
-        if (StrUtil.isNotBlank(excel.regexp())) {
-            if (fieldValue != null && !Pattern.matches(excel.regexp(), fieldValue)) {
-                return getTips(excel, REGEXP_TIP);
-            }
-        }
-        return null;
-    };
-
-    private static final BiFunction<Excel, String, String> dateFormat = (excel, fieldValue) -> {
-        if (StrUtil.isNotBlank(excel.dateFormat())) {
-            // TODO
-            return null;
-        }
-        return null;
-    };
+    /**
+     * 编译校验规则
+     *
+     * @param excel     注解对象
+     * @param fieldType 字段类型, 日期格式只校验文本类型的字段, 其他类型已由Excel转换
+     */
+    static Rule compile(Excel excel, Class<?> fieldType) {
+        return new Rule(excel, CharSequence.class.isAssignableFrom(fieldType) || fieldType == Object.class);
+    }
 
     /**
      * 校验提示信息前面拼上列名
@@ -96,11 +63,98 @@ public class ExcelAnnotationHandler {
         return tips;
     }
 
-    static {
-        checkFunction.add(require);
-        checkFunction.add(min);
-        checkFunction.add(max);
-        checkFunction.add(regexp);
-        checkFunction.add(dateFormat);
+    /**
+     * 日期格式, 年份按公元纪年严格校验 (如 2月30日 不通过)
+     */
+    private static DateTimeFormatter dateFormatter(String pattern) {
+        return new DateTimeFormatterBuilder()
+                .appendPattern(pattern)
+                .parseDefaulting(ChronoField.ERA, 1)
+                .toFormatter()
+                .withResolverStyle(ResolverStyle.STRICT);
+    }
+
+    /**
+     * 单个注解编译后的校验规则, 线程安全
+     */
+    static final class Rule {
+
+        private final boolean required;
+        private final int min;
+        private final int max;
+        private final Pattern regexp;
+        private final DateTimeFormatter dateFormat;
+        /**
+         * 正则匹配器按线程复用, 避免每次校验创建
+         */
+        private final ThreadLocal<Matcher> matchers;
+
+        private final String requireTip;
+        private final String minTip;
+        private final String maxTip;
+        private final String regexpTip;
+        private final String dateFormatTip;
+
+        private Rule(Excel excel, boolean textual) {
+            this.required = excel.required();
+            this.min = excel.min();
+            this.max = excel.max();
+            this.regexp = StrUtil.isNotBlank(excel.regexp()) ? Pattern.compile(excel.regexp()) : null;
+            this.dateFormat = textual && StrUtil.isNotBlank(excel.dateFormat()) ? dateFormatter(excel.dateFormat()) : null;
+            this.matchers = regexp == null ? null : ThreadLocal.withInitial(() -> regexp.matcher(""));
+            this.requireTip = getTips(excel, REQUIRE_TIP);
+            this.minTip = getTips(excel, MIN_TIP);
+            this.maxTip = getTips(excel, MAX_TIP);
+            this.regexpTip = getTips(excel, REGEXP_TIP);
+            this.dateFormatTip = getTips(excel, DATE_FORMAT_TIP);
+        }
+
+        /**
+         * 是否需要字段值的文本形式
+         */
+        boolean needsText() {
+            return min > 0 || max > 0 || regexp != null || dateFormat != null;
+        }
+
+        /**
+         * 是否有需要执行的校验
+         */
+        boolean isEmpty() {
+            return !required && !needsText();
+        }
+
+        /**
+         * 校验, 通过时返回null
+         */
+        String check(String fieldValue) {
+            if (required && (StrUtil.isBlank(fieldValue) || "null".equals(fieldValue.trim()))) {
+                return requireTip;
+            }
+            if (fieldValue == null) {
+                return null;
+            }
+            if (min > 0 && fieldValue.length() < min) {
+                return minTip;
+            }
+            if (max > 0 && fieldValue.length() > max) {
+                return maxTip;
+            }
+            if (regexp != null && !matchers.get().reset(fieldValue).matches()) {
+                return regexpTip;
+            }
+            if (dateFormat != null && !fieldValue.isEmpty() && !isDate(fieldValue)) {
+                return dateFormatTip;
+            }
+            return null;
+        }
+
+        private boolean isDate(String fieldValue) {
+            try {
+                dateFormat.parse(fieldValue);
+                return true;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
     }
 }
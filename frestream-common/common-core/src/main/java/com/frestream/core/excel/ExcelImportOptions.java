@@ -0,0 +1,35 @@
+package com.frestream.core.excel;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * @description: 并行导入配置, 后台读取线程按批放入有界队列, 由多个处理线程校验并交给消费者
+ *
+ * @author: TJ
+ * @date:  2022-10-01
+ **/
+@Data
+@Accessors(chain = true)
+public class ExcelImportOptions {
+
+    /**
+     * 处理线程数, 负责校验; 按完成顺序交付时也负责调用消费者
+     */
+    private int workers = Runtime.getRuntime().availableProcessors();
+    /**
+     * 每批行数, 也是每次交给消费者的最大行数
+     */
+    private int batchCount = 100;
+    /**
+     * 待处理批次队列容量, 队列满时读取线程等待; 小于等于0时为处理线程数的2倍.
+     * 按行顺序交付时, 已读取未交付的批次数不超过 队列容量 + 处理线程数
+     */
+    private int queueCapacity = 0;
+    /**
+     * 是否按行顺序交给消费者.
+     * 为true时消费者在调用导入的线程上按行顺序串行调用(读取在后台线程进行), 可使用调用方的事务、ThreadLocal、安全上下文与MDC;
+     * 为false时消费者被多个处理线程并发调用, 须线程安全, 且调用方的事务与ThreadLocal上下文不可用
+     */
+    private boolean ordered = true;
+}
@@ -0,0 +1,202 @@
+package com.frestream.core.excel;
+
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * @description:
+ *   导入数据校验: 每个DTO类只编译一次, 得到带 @Excel 注解字段的访问器与校验规则;
+ *   公共getter通过 LambdaMetafactory 生成访问器, 其他情况使用 MethodHandle 读取字段, 校验过程不经过json与反射.
+ *   线程安全, 通过 {@link #of(Class)} 获取
+ *
+ * @author: TJ
+ * @date:  2022-09-30
+ **/
+public final class ExcelValidator<T> {
+
+    /**
+     * 校验器缓存, 键为DTO类或指定的字段列表
+     */
+    private static final Map<Object, ExcelValidator<?>> VALIDATORS = new ConcurrentHashMap<>();
+
+    private final FieldRule[] rules;
+
+    private ExcelValidator(List<Field> fields) {
+        List<FieldRule> list = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            ExcelAnnotationHandler.Rule rule = ExcelAnnotationHandler.compile(field.getAnnotation(Excel.class), field.getType());
+            if (!rule.isEmpty()) {
+                list.add(new FieldRule(accessor(field), rule));
+            }
+        }
+        this.rules = list.toArray(new FieldRule[0]);
+    }
+
+    /**
+     * 获取DTO类的校验器, 按类缓存
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ExcelValidator<T> of(Class<T> clazz) {
+        return (ExcelValidator<T>) VALIDATORS.computeIfAbsent(clazz, c -> new ExcelValidator<>(getValidFields(clazz)));
+    }
+
+    /**
+     * 按指定字段编译校验器, 按字段列表缓存; 与DTO类的注解字段相同时复用该类的校验器
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ExcelValidator<T> of(List<Field> fields) {
+        List<Field> key = Collections.unmodifiableList(new ArrayList<>(fields));
+        ExcelValidator<?> validator = VALIDATORS.get(key);
+        if (validator != null) {
+            return (ExcelValidator<T>) validator;
+        }
+        if (!key.isEmpty()) {
+            Class<?> clazz = key.get(0).getDeclaringClass();
+            if (key.equals(getValidFields(clazz))) {
+                validator = of(clazz);
+                VALIDATORS.putIfAbsent(key, validator);
+                return (ExcelValidator<T>) validator;
+            }
+        }
+        return (ExcelValidator<T>) VALIDATORS.computeIfAbsent(key, k -> new ExcelValidator<>(key));
+    }
+
+    /**
+     * 取包含Excel注解的字段
+     */
+    public static List<Field> getValidFields(Class<?> clazz) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : ReflectUtil.getFields(clazz)) {
+            if (field.getAnnotation(Excel.class) != null && !Modifier.isStatic(field.getModifiers())) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 是否没有需要执行的校验
+     */
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    /**
+     * 校验一行数据, 按字段顺序返回第一个不通过的提示信息, 全部通过时返回null
+     */
+    public String validate(T row) {
+        for (FieldRule fieldRule : rules) {
+            String checkMsg = fieldRule.check(row);
+            if (checkMsg != null) {
+                return checkMsg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 字段访问器: 优先使用公共getter生成的lambda, JIT可内联; 否则使用字段的 MethodHandle
+     */
+    private static Function<Object, Object> accessor(Field field) {
+        Method getter = getter(field);
+        if (getter != null) {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle handle = lookup.unreflect(getter);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle, handle.type().wrap());
+                @SuppressWarnings("unchecked")
+                Function<Object, Object> function = (Function<Object, Object>) site.getTarget().invoke();
+                return function;
+            } catch (Throwable e) {
+                // 无法生成lambda时使用字段的 MethodHandle
+            }
+        }
+        try {
+            field.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            return row -> {
+                try {
+                    return handle.invokeExact(row);
+                } catch (Throwable e) {
+                    throw new IllegalStateException("读取字段失败: " + field, e);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法访问字段: " + field, e);
+        }
+    }
+
+    /**
+     * 字段的公共getter; 所在类对本类的类加载器不可见时返回null, 避免生成的lambda无法链接
+     */
+    private static Method getter(Field field) {
+        Class<?> clazz = field.getDeclaringClass();
+        if (!Modifier.isPublic(clazz.getModifiers()) || !isVisible(clazz)) {
+            return null;
+        }
+        String name = StrUtil.upperFirst(field.getName());
+        for (String prefix : field.getType() == boolean.class ? new String[]{"is", "get"} : new String[]{"get"}) {
+            try {
+                Method method = clazz.getMethod(prefix + name);
+                if (method.getReturnType() == field.getType() && !Modifier.isStatic(method.getModifiers())) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // 尝试下一个前缀
+            }
+        }
+        return null;
+    }
+
+    private static boolean isVisible(Class<?> clazz) {
+        try {
+            return Class.forName(clazz.getName(), false, ExcelValidator.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 单个字段的访问器与校验规则
+     */
+    private static final class FieldRule {
+
+        private final Function<Object, Object> accessor;
+        private final ExcelAnnotationHandler.Rule rule;
+        private final boolean needsText;
+
+        private FieldRule(Function<Object, Object> accessor, ExcelAnnotationHandler.Rule rule) {
+            this.accessor = accessor;
+            this.rule = rule;
+            this.needsText = rule.needsText();
+        }
+
+        private String check(Object row) {
+            Object value = accessor.apply(row);
+            if (value == null || value instanceof String) {
+                return rule.check((String) value);
+            }
+            // 非文本类型不为null时已满足必填, 其他校验才需要转为文本
+            return needsText ? rule.check(String.valueOf(value)) : null;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.frestream.core.excel;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.util.ListUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * @description:
+ *   并行导入监听: 由 {@link #execute(Runnable)} 在后台读取线程上执行 EasyExcel 读取, 读取线程把行数据按批放入有界队列,
+ *   队列满时等待(背压); 处理线程负责校验.
+ *   按行顺序交付时, 消费者在调用 execute 的线程上按批次顺序调用, 调用方的事务、ThreadLocal、安全上下文及MDC均可用;
+ *   读取、校验与消费同时进行, 未交付的批次数超过 队列容量 + 处理线程数 时读取线程等待, 内存占用有上限.
+ *   按完成顺序交付时, 消费者在处理线程上并发调用, 不在调用方的事务与ThreadLocal上下文中执行.
+ *   任一线程出现异常时取消导入: 停止读取, 丢弃未处理的批次, 由 execute 抛出该异常; 返回前所有导入线程均已结束.
+ *   校验失败的数据最终按行号排序
+ *
+ * @author: TJ
+ * @date:  2022-10-01
+ **/
+@Slf4j
+public class PipelinedReadListener<T> implements ReadListener<T> {
+
+    /**
+     * 队列满或等待批次完成时检查取消状态的间隔, 单位毫秒
+     */
+    private static final long WAIT_INTERVAL_MILLIS = 100L;
+    /**
+     * 结束时等待导入线程退出的最长时间, 单位秒
+     */
+    private static final long TERMINATION_SECONDS = 10L;
+
+    private final Consumer<List<T>> consumer;
+    private final ExcelValidator<T> validator;
+    private final int batchCount;
+    private final boolean ordered;
+    private final int workers;
+    /**
+     * 按行顺序交付时, 已提交但尚未交付的最大批次数
+     */
+    private final int maxInFlight;
+
+    private final BlockingQueue<Batch<T>> queue;
+    /**
+     * 1个读取线程 + 处理线程
+     */
+    private final ExecutorService executor;
+    private final CountDownLatch readFinished = new CountDownLatch(1);
+    private final CountDownLatch finished;
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final List<ExcelFailResult> failResults = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * 读取线程当前的批次
+     */
+    private Batch<T> current;
+    private long nextSequence;
+
+    /**
+     * 按行顺序交付时, 已处理完成但尚未交付的结果, 由调用线程按顺序取出; 同时作为交付进度的锁
+     */
+    private final Map<Long, List<T>> completed = new HashMap<>();
+    /**
+     * 下一个交付的批次, 由调用线程在 completed 锁内修改
+     */
+    private long nextDelivery;
+    /**
+     * 读取结束后提交的批次总数, 读取中为-1; 在 completed 锁内修改
+     */
+    private long submitted = -1L;
+
+    public PipelinedReadListener(Consumer<List<T>> consumer, ExcelValidator<T> validator, ExcelImportOptions options) {
+        this.consumer = consumer;
+        this.validator = validator == null || validator.isEmpty() ? null : validator;
+        this.batchCount = Math.max(1, options.getBatchCount());
+        this.ordered = options.isOrdered();
+        this.workers = Math.max(1, options.getWorkers());
+        int queueCapacity = options.getQueueCapacity() > 0 ? options.getQueueCapacity() : workers * 2;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxInFlight = queueCapacity + workers;
+        this.finished = new CountDownLatch(workers);
+        this.executor = Executors.newFixedThreadPool(workers + 1,
+                ThreadFactoryBuilder.create().setNamePrefix("excel-import-").setDaemon(true).build());
+        this.current = new Batch<>(nextSequence++, batchCount);
+    }
+
+    @Override
+    public void invoke(T data, AnalysisContext context) {
+        current.add(data, context.readRowHolder().getRowIndex());
+        if (current.size() >= batchCount) {
+            submit(current);
+            current = new Batch<>(nextSequence++, batchCount);
+            if (ordered) {
+                awaitDelivery();
+            }
+        }
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        if (current.size() > 0) {
+            submit(current);
+            current = new Batch<>(nextSequence++, batchCount);
+        }
+    }
+
+    /**
+     * 已取消时停止读取
+     */
+    @Override
+    public boolean hasNext(AnalysisContext context) {
+        return error.get() == null;
+    }
+
+    /**
+     * 取消导入, 只保留第一个异常
+     */
+    public void cancel(Throwable cause) {
+        if (error.compareAndSet(null, cause)) {
+            log.error("===[PipelinedReadListener][cancel] 导入取消: ", cause);
+        }
+    }
+
+    /**
+     * 执行导入: read 在后台读取线程上执行(如 EasyExcel 的 doRead), 当前线程等待导入完成;
+     * 按行顺序交付时当前线程同时按顺序交付已校验的批次. 每个监听只能执行一次
+     *
+     * @param read 使用本监听读取excel
+     * @return 按行号排序的校验失败数据
+     */
+    public List<ExcelFailResult> execute(Runnable read) {
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+        executor.execute(() -> read(read));
+        try {
+            if (ordered) {
+                deliver();
+            }
+            readFinished.await();
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(e);
+        } catch (RuntimeException | Error e) {
+            cancel(e);
+        } finally {
+            shutdown();
+        }
+
+        Throwable cause = error.get();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (cause != null) {
+            throw new IllegalStateException("导入失败", cause);
+        }
+        List<ExcelFailResult> results = new ArrayList<>(failResults);
+        results.sort(Comparator.comparingInt(ExcelFailResult::getRowNUm));
+        return results;
+    }
+
+    /**
+     * 读取线程: 读取结束(含失败)后记录批次总数, 通知处理线程退出
+     */
+    private void read(Runnable read) {
+        try {
+            read.run();
+        } catch (Throwable e) {
+            cancel(e);
+        } finally {
+            synchronized (completed) {
+                // current 为尚未提交的批次, 之前的批次均已提交
+                submitted = current.sequence;
+                completed.notifyAll();
+            }
+            try {
+                for (int i = 0; i < workers; i++) {
+                    queue.put(Batch.end());
+                }
+            } catch (InterruptedException e) {
+                cancel(e);
+            } finally {
+                readFinished.countDown();
+            }
+        }
+    }
+
+    /**
+     * 放入队列, 队列满时等待; 已取消时丢弃
+     */
+    private void submit(Batch<T> batch) {
+        try {
+            while (!queue.offer(batch, WAIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (error.get() != null) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(e);
+        }
+    }
+
+    /**
+     * 按行顺序交付时, 读取线程在未交付的批次过多时等待; 已取消时返回
+     */
+    private void awaitDelivery() {
+        try {
+            synchronized (completed) {
+                while (current.sequence - nextDelivery > maxInFlight && error.get() == null) {
+                    completed.wait(WAIT_INTERVAL_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(e);
+        }
+    }
+
+    private void work() {
+        try {
+            for (;;) {
+                Batch<T> batch = queue.take();
+                if (batch.isEnd()) {
+                    return;
+                }
+                if (error.get() != null) {
+                    // 已取消, 继续取出剩余批次使读取线程不被阻塞
+                    continue;
+                }
+                try {
+                    complete(batch.sequence, process(batch));
+                } catch (Throwable e) {
+                    cancel(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel(e);
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * 校验批次中的数据, 返回校验通过的数据
+     */
+    private List<T> process(Batch<T> batch) {
+        if (validator == null) {
+            return batch.rows;
+        }
+        List<T> valid = ListUtils.newArrayListWithExpectedSize(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            T row = batch.rows.get(i);
+            String checkMsg = validator.validate(row);
+            if (checkMsg != null) {
+                failResults.add(new ExcelFailResult()
+                        .setRowNUm(batch.rowIndexes[i])
+                        .setFailMessage(checkMsg)
+                        .setRowData(row));
+            } else {
+                valid.add(row);
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * 处理线程完成一个批次: 按完成顺序交付时直接交给消费者, 否则留给调用线程按顺序交付
+     */
+    private void complete(long sequence, List<T> valid) {
+        if (!ordered) {
+            if (!valid.isEmpty()) {
+                consumer.accept(valid);
+            }
+            return;
+        }
+        synchronized (completed) {
+            completed.put(sequence, valid);
+            completed.notifyAll();
+        }
+    }
+
+    /**
+     * 调用线程按顺序交付已完成的批次, 直到读取结束且全部交付; 已取消时返回, 消费者的异常直接抛出
+     */
+    private void deliver() throws InterruptedException {
+        for (;;) {
+            List<T> next;
+            synchronized (completed) {
+                while ((next = completed.remove(nextDelivery)) == null) {
+                    if (error.get() != null || (submitted >= 0 && nextDelivery >= submitted)) {
+                        return;
+                    }
+                    completed.wait(WAIT_INTERVAL_MILLIS);
+                }
+            }
+            if (error.get() != null) {
+                return;
+            }
+            if (!next.isEmpty()) {
+                consumer.accept(next);
+            }
+            synchronized (completed) {
+                nextDelivery++;
+                completed.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 停止并等待所有导入线程退出
+     */
+    private void shutdown() {
+        executor.shutdownNow();
+        boolean interrupted = Thread.interrupted();
+        try {
+            if (!executor.awaitTermination(TERMINATION_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("===[PipelinedReadListener][shutdown] 导入线程未在{}秒内退出", TERMINATION_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 一批行数据及其行号, sequence 为 -1 时表示读取结束
+     */
+    private static final class Batch<T> {
+
+        private final long sequence;
+        private final List<T> rows;
+        private final int[] rowIndexes;
+
+        private Batch(long sequence, int capacity) {
+            this.sequence = sequence;
+            this.rows = ListUtils.newArrayListWithExpectedSize(capacity);
+            this.rowIndexes = new int[capacity];
+        }
+
+        private static <T> Batch<T> end() {
+            return new Batch<>(-1L, 0);
+        }
+
+        private void add(T row, int rowIndex) {
+            rowIndexes[rows.size()] = rowIndex;
+            rows.add(row);
+        }
+
+        private int size() {
+            return rows.size();
+        }
+
+        private boolean isEnd() {
+            return sequence < 0;
+        }
+    }
+}
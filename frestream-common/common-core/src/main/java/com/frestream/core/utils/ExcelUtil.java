@@ -1,18 +1,16 @@
 package com.frestream.core.utils;
 
-import cn.hutool.core.util.ReflectUtil;
 import com.alibaba.excel.EasyExcel;
 import com.frestream.core.excel.CustomReadListener;
-import com.frestream.core.excel.Excel;
 import com.frestream.core.excel.ExcelFailResult;
+import com.frestream.core.excel.ExcelImportOptions;
+import com.frestream.core.excel.ExcelValidator;
+import com.frestream.core.excel.PipelinedReadListener;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * @description: excel操作
@@ -23,20 +21,30 @@ import java.util.stream.Collectors;
 @Slf4j(topic = "common-core-ExcelUtil")
 public class ExcelUtil {
 
+    @SuppressWarnings("unchecked")
     public static <T> List<ExcelFailResult> importData(InputStream inputStream, Class<?> readDTO, Consumer<List<T>> consumer) {
 
         CustomReadListener<T> listener = new CustomReadListener<>(consumer);
-        listener.setValidFields(getValidFields(readDTO));
+        listener.setValidator((ExcelValidator<T>) ExcelValidator.of(readDTO));
 
         EasyExcel.read(inputStream, readDTO, listener).sheet().headRowNumber(2).doRead();
         return listener.getFailResults();
     }
 
-    private static List<Field> getValidFields(Class<?> readDTO) {
-        Field[] fields = ReflectUtil.getFields(readDTO);
-        // 取包含Excel注解的字段作相应校验
-        return Arrays.stream(fields)
-                .filter(field -> field.getAnnotation(Excel.class) != null)
-                .collect(Collectors.toList());
+    /**
+     * 并行导入: 后台读取线程通过有界队列把数据交给处理线程校验, 读取、校验与消费同时进行;
+     * 读取、处理或消费出现异常时停止读取并抛出第一个异常, 返回前导入线程均已结束.
+     * 按行顺序交付(默认)时消费者在当前线程按顺序调用, 当前事务与ThreadLocal上下文可用;
+     * 按完成顺序交付时消费者在处理线程上并发调用, 当前事务、ThreadLocal、安全上下文及MDC均不可用
+     *
+     * @param options 处理线程数、批次大小、队列容量及是否按顺序交付
+     * @return 按行号排序的校验失败数据
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> List<ExcelFailResult> importData(InputStream inputStream, Class<?> readDTO, Consumer<List<T>> consumer,
+                                                       ExcelImportOptions options) {
+
+        PipelinedReadListener<T> listener = new PipelinedReadListener<>(consumer, (ExcelValidator<T>) ExcelValidator.of(readDTO), options);
+        return listener.execute(() -> EasyExcel.read(inputStream, readDTO, listener).sheet().headRowNumber(2).doRead());
     }
 }
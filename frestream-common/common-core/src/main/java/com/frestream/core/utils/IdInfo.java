@@ -0,0 +1,32 @@
+package com.frestream.core.utils;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * @description: ID解析结果
+ *
+ * @author: TJ
+ * @date:  2022-09-27
+ **/
+@Data
+@Accessors(chain = true)
+public class IdInfo {
+
+    /**
+     * 生成时间, Unix时间戳 (毫秒), 秒级布局时精确到秒
+     */
+    private long timestamp;
+    /**
+     * 机器id
+     */
+    private long workerId;
+    /**
+     * 是否由备份机器生成 (秒内序列用尽或时钟回拨)
+     */
+    private boolean backup;
+    /**
+     * 自增序列
+     */
+    private long sequence;
+}
@@ -0,0 +1,209 @@
+package com.frestream.core.utils;
+
+import cn.hutool.core.date.SystemClock;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description:
+ *   ID位布局: 时间戳 | 机器id | 自增序列, 总位数不超过53位, 保证js中 number 类型不丢失精度;
+ *   时间戳位数 = 53 - 机器id位数 - 序列位数, 决定可用年限. 机器id的高半部分作为备份机器使用
+ *
+ * @author: TJ
+ * @date:  2022-09-27
+ **/
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class IdLayout {
+
+    /**
+     * js中 number 类型可精确表示的整数位数
+     */
+    public static final int SAFE_BITS = 53;
+    /**
+     * 默认布局: 秒级时间戳, 5位机器id, 16位序列, 起始时间 2019-01-01
+     */
+    public static final IdLayout DEFAULT = new IdLayout(TimeUnit.SECONDS, 1546300800L, 5, 16);
+
+    /**
+     * 时间戳单位, 秒或毫秒
+     */
+    private final TimeUnit timeUnit;
+    /**
+     * 起始时间, Unix时间戳 (秒)
+     */
+    private final long epoch;
+    /**
+     * 机器id所占位数
+     */
+    private final int workerBits;
+    /**
+     * 自增序列所占位数
+     */
+    private final int sequenceBits;
+
+    public IdLayout(TimeUnit timeUnit, long epoch, int workerBits, int sequenceBits) {
+        if (timeUnit != TimeUnit.SECONDS && timeUnit != TimeUnit.MILLISECONDS) {
+            throw new IllegalArgumentException("时间戳单位只支持秒或毫秒: " + timeUnit);
+        }
+        if (workerBits < 1 || sequenceBits < 1) {
+            throw new IllegalArgumentException(String.format("机器id位数与序列位数必须大于0: [%d] [%d]", workerBits, sequenceBits));
+        }
+        if (workerBits + sequenceBits >= SAFE_BITS) {
+            throw new IllegalArgumentException(String.format("机器id位数与序列位数之和必须小于%d: [%d] [%d]", SAFE_BITS, workerBits, sequenceBits));
+        }
+        if (epoch < 0) {
+            throw new IllegalArgumentException("起始时间不能为负数: " + epoch);
+        }
+        this.timeUnit = timeUnit;
+        this.epoch = epoch;
+        this.workerBits = workerBits;
+        this.sequenceBits = sequenceBits;
+    }
+
+    /**
+     * 时间戳所占位数
+     */
+    public int getTimestampBits() {
+        return SAFE_BITS - workerBits - sequenceBits;
+    }
+
+    /**
+     * 时间戳最大值 (相对起始时间)
+     */
+    public long getTimestampMax() {
+        return (1L << getTimestampBits()) - 1;
+    }
+
+    /**
+     * 自增序列最大值
+     */
+    public long getSequenceMax() {
+        return (1L << sequenceBits) - 1;
+    }
+
+    /**
+     * 机器标识最大值, 其余一半作为备份机器
+     */
+    public long getWorkerIdMax() {
+        return ((1L << workerBits) - 1) >> 1;
+    }
+
+    /**
+     * 备份机器ID开始位置
+     */
+    public long getBackWorkerIdBegin() {
+        return (1L << workerBits) >> 1;
+    }
+
+    /**
+     * 发生时间回拨时容忍的最大回拨时间 (1秒, 按时间戳单位); 也是备份机器序列用尽时最多领先当前时间借用的时间
+     */
+    public long getBackTimeMax() {
+        return timeUnit.convert(1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 起始时间, 按时间戳单位
+     */
+    public long getEpochUnits() {
+        return timeUnit.convert(epoch, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 当前时间, 按时间戳单位
+     */
+    public long now() {
+        long millis = SystemClock.now();
+        return timeUnit == TimeUnit.SECONDS ? millis / 1000 : millis;
+    }
+
+    /**
+     * 单机主序列每秒最多生成的ID个数 (不含备份机器)
+     */
+    public long getCapacityPerSecond() {
+        return getSequenceMax() * timeUnit.convert(1L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 可用截止时间, Unix时间戳 (毫秒)
+     */
+    public long getExpireAt() {
+        return TimeUnit.SECONDS.toMillis(epoch) + timeUnit.toMillis(getTimestampMax());
+    }
+
+    /**
+     * 组装ID
+     *
+     * @param timestamp 时间戳, 按时间戳单位
+     * @param workerId  机器id
+     * @param sequence  自增序列
+     */
+    public long compose(long timestamp, long workerId, long sequence) {
+        long time = timestamp - getEpochUnits();
+        if (time < 0 || time > getTimestampMax()) {
+            throw new IllegalStateException(String.format("时间戳超出ID布局可用范围: [%d] %s", timestamp, this));
+        }
+        return (time << (workerBits + sequenceBits)) | (workerId << sequenceBits) | sequence;
+    }
+
+    /**
+     * 解析ID
+     */
+    public IdInfo decode(long id) {
+        long sequence = id & getSequenceMax();
+        long workerId = (id >>> sequenceBits) & ((1L << workerBits) - 1);
+        long timestamp = (id >>> (workerBits + sequenceBits)) + getEpochUnits();
+        return new IdInfo()
+                .setTimestamp(timeUnit.toMillis(timestamp))
+                .setWorkerId(workerId & getWorkerIdMax())
+                .setBackup(workerId >= getBackWorkerIdBegin())
+                .setSequence(sequence);
+    }
+
+    /**
+     * 校验布局在当前时间可用
+     */
+    public void validate() {
+        long now = SystemClock.now();
+        if (TimeUnit.SECONDS.toMillis(epoch) > now) {
+            throw new IllegalStateException("起始时间不能晚于当前时间: " + this);
+        }
+        if (getExpireAt() <= now) {
+            throw new IllegalStateException("ID布局已过期: " + this);
+        }
+    }
+
+    /**
+     * 布局说明: 各部分位数、机器数、单机每秒容量、可用年限
+     */
+    public String report() {
+        long now = SystemClock.now();
+        return String.format("时间戳: %d位 (%s), 起始 %s, 可用至 %s, 剩余约 %.1f年%n"
+                        + "机器id: %d位, 机器数 %d (另有 %d 个备份机器id)%n"
+                        + "自增序列: %d位, 单机每秒最多 %d 个ID%n"
+                        + "总位数: %d, 最大ID %d",
+                getTimestampBits(), timeUnit, Instant.ofEpochSecond(epoch).atZone(ZoneId.systemDefault()).toLocalDate(),
+                Instant.ofEpochMilli(getExpireAt()).atZone(ZoneId.systemDefault()).toLocalDate(),
+                (getExpireAt() - now) / (365.25D * 24 * 3600 * 1000),
+                workerBits, getWorkerIdMax() + 1, getWorkerIdMax() + 1,
+                sequenceBits, getCapacityPerSecond(),
+                SAFE_BITS, (1L << SAFE_BITS) - 1);
+    }
+
+    /**
+     * 校验工具, 参数: 时间戳单位(SECONDS/MILLISECONDS) 起始时间(秒) 机器id位数 序列位数
+     */
+    public static void main(String[] args) {
+        IdLayout layout = args.length < 4 ? DEFAULT : new IdLayout(TimeUnit.valueOf(args[0]), Long.parseLong(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        System.out.println(layout.report());
+        layout.validate();
+    }
+}
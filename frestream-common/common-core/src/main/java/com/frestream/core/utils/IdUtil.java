@@ -2,74 +2,96 @@ package com.frestream.core.utils;
 
 import cn.hutool.core.date.SystemClock;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class IdUtil {
 
     /**
-     * 初始偏移时间戳
+     * ID位布局, 默认: 秒级时间戳 | 5位机器id (0~15 保留 16~31作为备份机器) | 16位序列 (每秒 2^16 - 1 = 65535)
      */
-    private static final long OFFSET = 1546300800L;
+    private static volatile IdLayout layout = IdLayout.DEFAULT;
 
     /**
-     * 机器id (0~15 保留 16~31作为备份机器)
-     */
-    private static final long WORKER_ID;
-    /**
-     * 机器id所占位数 (5bit, 支持最大机器数 2^5 = 32)
-     */
-    private static final long WORKER_ID_BITS = 5L;
-    /**
-     * 自增序列所占位数 (16bit, 支持最大每秒生成 2^16 = ‭65536‬)
-     */
-    private static final long SEQUENCE_ID_BITS = 16L;
-    /**
-     * 机器id偏移位数
-     */
-    private static final long WORKER_SHIFT_BITS = SEQUENCE_ID_BITS;
-    /**
-     * 自增序列偏移位数
-     */
-    private static final long OFFSET_SHIFT_BITS = SEQUENCE_ID_BITS + WORKER_ID_BITS;
-    /**
-     * 机器标识最大值 (2^5 / 2 - 1 = 15)
+     * 当前机器id及有效期, 未分配或租约失效时拒绝生成ID
      */
-    private static final long WORKER_ID_MAX = ((1 << WORKER_ID_BITS) - 1) >> 1;
+    private static volatile Worker worker;
+
     /**
-     * 备份机器ID开始位置 (2^5 / 2 = 16)
+     * 主机器状态: (上次生成ID的时间戳 - 起始时间) << 序列位数 | 当前时间单位内序列, 通过CAS更新;
+     * 使用相对起始时间的时间戳, 与ID中的时间戳位数相同, 不会溢出
      */
-    private static final long BACK_WORKER_ID_BEGIN = (1 << WORKER_ID_BITS) >> 1;
+    private static final AtomicLong STATE = new AtomicLong();
     /**
-     * 自增序列最大值 (2^16 - 1 = ‭65535)
+     * 备份机器状态: (上次生成ID的时间戳 - 起始时间) << 序列位数 | 当前时间单位内序列, 通过CAS更新
      */
-    private static final long SEQUENCE_MAX = (1 << SEQUENCE_ID_BITS) - 1;
+    private static final AtomicLong STATE_BAK = new AtomicLong();
+
+    static {
+        // 初始化机器ID, 默认为1; 多节点部署时通过 assignWorkerId 分配(如 Redis 租约)
+        worker = new Worker(1L, Long.MAX_VALUE);
+    }
+
+    private IdUtil() {
+    }
+
     /**
-     * 发生时间回拨时容忍的最大回拨时间 (秒)
+     * 修改ID位布局, 须在生成第一个ID之前调用
+     *
+     * @param newLayout 新布局
      */
-    private static final long BACK_TIME_MAX = 1L;
+    public static synchronized void configure(IdLayout newLayout) {
+        if (newLayout.equals(layout)) {
+            return;
+        }
+        if (STATE.get() != 0L || STATE_BAK.get() != 0L) {
+            throw new IllegalStateException("已生成ID, 不能修改ID位布局");
+        }
+        newLayout.validate();
+        if (worker.id > newLayout.getWorkerIdMax()) {
+            throw new IllegalArgumentException(String.format("机器id超出布局范围: [%d] max: [%d]", worker.id, newLayout.getWorkerIdMax()));
+        }
+        layout = newLayout;
+    }
 
     /**
-     * 上次生成ID的时间戳 (秒)
+     * 分配机器id
+     *
+     * @param workerId 机器id, 0 ~ 布局的机器标识最大值
+     * @param expireAt 有效期, Unix时间戳 (毫秒), 超过后拒绝生成ID; Long.MAX_VALUE 表示永久有效
      */
-    private static long lastTimestamp = 0L;
+    public static void assignWorkerId(long workerId, long expireAt) {
+        if (workerId < 0 || workerId > layout.getWorkerIdMax()) {
+            throw new IllegalArgumentException(String.format("机器id超出布局范围: [%d] max: [%d]", workerId, layout.getWorkerIdMax()));
+        }
+        worker = new Worker(workerId, expireAt);
+    }
+
     /**
-     * 当前秒内序列 (2^16)
+     * 收回机器id, 之后生成ID时抛出异常, 直到重新分配
      */
-    private static long sequence = 0L;
+    public static void revokeWorkerId() {
+        worker = new Worker(-1L, 0L);
+    }
+
     /**
-     * 备份机器上次生成ID的时间戳 (秒)
+     * 当前机器id, 未分配时返回 -1
      */
-    private static long lastTimestampBak = 0L;
+    public static long getWorkerId() {
+        return worker.id;
+    }
+
     /**
-     * 备份机器当前秒内序列 (2^16)
+     * 当前ID位布局
      */
-    private static long sequenceBak = 0L;
-
-    static {
-        // 初始化机器ID
-        // 伪代码: 由你的配置文件获取节点ID
-        WORKER_ID = 1L;
+    public static IdLayout getLayout() {
+        return layout;
     }
 
-    private IdUtil() {
+    /**
+     * 按当前布局解析ID
+     */
+    public static IdInfo decode(long id) {
+        return layout.decode(id);
     }
 
     /**
@@ -78,7 +100,8 @@ public class IdUtil {
      * @return long
      */
     public static long nextId() {
-        return nextId(SystemClock.now() / 1000);
+        IdLayout current = layout;
+        return nextId(current, workerId(), current.now());
     }
 
     /**
@@ -90,57 +113,201 @@ public class IdUtil {
     }
 
     /**
-     * 主机器自增序列
+     * 批量获取ID: 每次CAS预留当前时间单位内一段连续序列, 一段不够时继续预留;
+     * 当前序列用尽时与 nextId 相同, 转由备份机器(可借用下一时间单位)分配
      *
-     * @param timestamp 当前Unix时间戳
-     * @return long
+     * @param n 个数
+     * @return 按生成顺序排列的ID
      */
-    private static synchronized long nextId(long timestamp) {
-        // 时钟回拨检查
-        if (timestamp < lastTimestamp) {
-            // 发生时钟回拨
-            return nextIdBackup(timestamp);
+    public static long[] nextIds(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("个数必须大于0: " + n);
         }
+        IdLayout current = layout;
+        long workerId = workerId();
+        long[] ids = new long[n];
+        int filled = 0;
+        while (filled < n) {
+            filled += reserve(current, workerId, current.now(), ids, filled);
+        }
+        return ids;
+    }
+
+    /**
+     * 主机器预留一段连续序列, 写入 ids[offset...]
+     *
+     * @return 预留的个数
+     */
+    private static int reserve(IdLayout layout, long workerId, long timestamp, long[] ids, int offset) {
+        int sequenceBits = layout.getSequenceBits();
+        long sequenceMax = layout.getSequenceMax();
+        long epoch = layout.getEpochUnits();
+        for (;;) {
+            long current = STATE.get();
+            long lastTimestamp = (current >>> sequenceBits) + epoch;
+            if (timestamp < lastTimestamp) {
+                return reserveBackup(layout, workerId, timestamp, ids, offset);
+            }
 
-        // 开始下一秒
-        if (timestamp != lastTimestamp) {
-            lastTimestamp = timestamp;
-            sequence = 0L;
+            long sequence = timestamp == lastTimestamp ? current & sequenceMax : 0L;
+            int count = (int) Math.min(ids.length - offset, sequenceMax - sequence);
+            if (count <= 0) {
+                return reserveBackup(layout, workerId, timestamp, ids, offset);
+            }
+            // 先组装, 时间戳超出布局范围时抛出异常, 不写入状态
+            long base = layout.compose(timestamp, workerId, 0L);
+            if (STATE.compareAndSet(current, ((timestamp - epoch) << sequenceBits) | (sequence + count))) {
+                for (int i = 0; i < count; i++) {
+                    ids[offset + i] = base | (sequence + 1 + i);
+                }
+                return count;
+            }
         }
-        if (0L == (++sequence & SEQUENCE_MAX)) {
-            // 秒内序列用尽
-            sequence--;
-            return nextIdBackup(timestamp);
+    }
+
+    /**
+     * 备份机器预留一段连续序列, 写入 ids[offset...]
+     *
+     * @return 预留的个数
+     */
+    private static int reserveBackup(IdLayout layout, long workerId, long timestamp, long[] ids, int offset) {
+        int sequenceBits = layout.getSequenceBits();
+        long sequenceMax = layout.getSequenceMax();
+        long epoch = layout.getEpochUnits();
+        for (;;) {
+            long current = STATE_BAK.get();
+            long lastTimestampBak = (current >>> sequenceBits) + epoch;
+            long time = backupTime(layout, timestamp, lastTimestampBak);
+
+            long sequence = time == lastTimestampBak ? current & sequenceMax : 0L;
+            int count = (int) Math.min(ids.length - offset, sequenceMax - sequence);
+            if (count <= 0) {
+                timestamp = borrowNext(layout, time);
+                continue;
+            }
+            long base = layout.compose(time, workerId ^ layout.getBackWorkerIdBegin(), 0L);
+            if (STATE_BAK.compareAndSet(current, ((time - epoch) << sequenceBits) | (sequence + count))) {
+                for (int i = 0; i < count; i++) {
+                    ids[offset + i] = base | (sequence + 1 + i);
+                }
+                return count;
+            }
         }
+    }
 
-        return ((timestamp - OFFSET) << OFFSET_SHIFT_BITS) | (WORKER_ID << WORKER_SHIFT_BITS) | sequence;
+    /**
+     * 主机器自增序列, 无锁实现: 时间戳与序列打包在同一个 AtomicLong 中, 一次CAS同时更新
+     *
+     * @param timestamp 当前时间戳, 按布局的时间单位
+     * @return long
+     */
+    private static long nextId(IdLayout layout, long workerId, long timestamp) {
+        int sequenceBits = layout.getSequenceBits();
+        long sequenceMax = layout.getSequenceMax();
+        long epoch = layout.getEpochUnits();
+        for (;;) {
+            long current = STATE.get();
+            long lastTimestamp = (current >>> sequenceBits) + epoch;
+            // 时钟回拨检查
+            if (timestamp < lastTimestamp) {
+                // 发生时钟回拨
+                return nextIdBackup(layout, workerId, timestamp);
+            }
+
+            // 开始下一时间单位时序列从1开始
+            long sequence = timestamp == lastTimestamp ? (current & sequenceMax) + 1 : 1L;
+            if (sequence > sequenceMax) {
+                // 序列用尽
+                return nextIdBackup(layout, workerId, timestamp);
+            }
+            // 先组装, 时间戳超出布局范围时抛出异常, 不写入状态
+            long id = layout.compose(timestamp, workerId, sequence);
+            if (STATE.compareAndSet(current, ((timestamp - epoch) << sequenceBits) | sequence)) {
+                return id;
+            }
+        }
     }
 
     /**
-     * 备份机器自增序列
+     * 备份机器自增序列, 无锁实现
      *
-     * @param timestamp timestamp 当前Unix时间戳
+     * @param timestamp 当前时间戳, 按布局的时间单位
      * @return long
      */
-    private static long nextIdBackup(long timestamp) {
-        if (timestamp < lastTimestampBak) {
-            if (lastTimestampBak - SystemClock.now() / 1000 <= BACK_TIME_MAX) {
-                timestamp = lastTimestampBak;
-            } else {
-                throw new RuntimeException(String.format("时钟回拨: now: [%d] last: [%d]", timestamp, lastTimestampBak));
+    private static long nextIdBackup(IdLayout layout, long workerId, long timestamp) {
+        int sequenceBits = layout.getSequenceBits();
+        long sequenceMax = layout.getSequenceMax();
+        long epoch = layout.getEpochUnits();
+        for (;;) {
+            long current = STATE_BAK.get();
+            long lastTimestampBak = (current >>> sequenceBits) + epoch;
+            long time = backupTime(layout, timestamp, lastTimestampBak);
+
+            long sequence = time == lastTimestampBak ? (current & sequenceMax) + 1 : 1L;
+            if (sequence > sequenceMax) {
+                timestamp = borrowNext(layout, time);
+                continue;
+            }
+            long id = layout.compose(time, workerId ^ layout.getBackWorkerIdBegin(), sequence);
+            if (STATE_BAK.compareAndSet(current, ((time - epoch) << sequenceBits) | sequence)) {
+                return id;
             }
         }
+    }
 
-        if (timestamp != lastTimestampBak) {
-            lastTimestampBak = timestamp;
-            sequenceBak = 0L;
+    /**
+     * 当前可用的机器id, 未分配或已过期时抛出异常
+     */
+    private static long workerId() {
+        Worker current = worker;
+        if (current.id < 0 || (current.expireAt != Long.MAX_VALUE && SystemClock.now() >= current.expireAt)) {
+            throw new IllegalStateException("机器id未分配或租约已失效, 拒绝生成ID");
         }
+        return current.id;
+    }
 
-        if (0L == (++sequenceBak & SEQUENCE_MAX)) {
-            return nextIdBackup(timestamp + 1);
+    /**
+     * 备份机器序列用尽, 借用下一时间单位; 最多领先当前时间 {@link IdLayout#getBackTimeMax()},
+     * 超过时等待时钟追上. 已生成的ID时间戳因此不会超出机器id租约安全余量所覆盖的范围, 释放后其他节点不会重复
+     */
+    private static long borrowNext(IdLayout layout, long time) {
+        long next = time + 1;
+        while (next - layout.now() > layout.getBackTimeMax()) {
+            try {
+                Thread.sleep(1L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待时钟追上借用的时间时被中断", e);
+            }
         }
+        return next;
+    }
 
-        return ((timestamp - OFFSET) << OFFSET_SHIFT_BITS) | ((WORKER_ID ^ BACK_WORKER_ID_BEGIN) << WORKER_SHIFT_BITS) | sequenceBak;
+    /**
+     * 备份机器使用的时间戳: 回拨不超过容忍时间时沿用上次时间戳, 否则抛出异常
+     */
+    private static long backupTime(IdLayout layout, long timestamp, long lastTimestampBak) {
+        if (timestamp >= lastTimestampBak) {
+            return timestamp;
+        }
+        if (lastTimestampBak - layout.now() <= layout.getBackTimeMax()) {
+            return lastTimestampBak;
+        }
+        throw new RuntimeException(String.format("时钟回拨: now: [%d] last: [%d]", timestamp, lastTimestampBak));
+    }
+
+    /**
+     * 机器id及有效期, 整体替换保证两者一致
+     */
+    private static final class Worker {
+
+        private final long id;
+        private final long expireAt;
+
+        private Worker(long id, long expireAt) {
+            this.id = id;
+            this.expireAt = expireAt;
+        }
     }
 
     public static void main(String[] args) {
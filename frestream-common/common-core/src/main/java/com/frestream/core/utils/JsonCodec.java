@@ -0,0 +1,97 @@
+package com.frestream.core.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @description:
+ *   指定类型的json读写句柄, 持有预先构建的 ObjectReader / ObjectWriter, 调用时不再查找类型与序列化器;
+ *   线程安全, 热点调用方可保存为静态常量. 通过 {@link JsonUtil#codec(Class)} 等方法获取
+ *
+ * @author: TJ
+ * @date:  2022-09-29
+ **/
+@Slf4j
+public final class JsonCodec<T> {
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    JsonCodec(ObjectReader reader, ObjectWriter writer) {
+        this.reader = reader;
+        this.writer = writer;
+    }
+
+    /**
+     * 解析json字符串, 失败时返回null
+     */
+    public T read(String json) {
+        try {
+            return reader.readValue(json);
+        } catch (JsonProcessingException e) {
+            log.error("===[JsonCodec][read]: ", e);
+        }
+        return null;
+    }
+
+    /**
+     * 从字节解析, 编码自动识别 (UTF-8/16/32), 失败时返回null
+     */
+    public T read(byte[] bytes) {
+        try {
+            return reader.readValue(bytes);
+        } catch (IOException e) {
+            log.error("===[JsonCodec][read]: ", e);
+        }
+        return null;
+    }
+
+    /**
+     * 从输入流解析, 不关闭输入流, 失败时返回null
+     */
+    public T read(InputStream in) {
+        try {
+            return reader.readValue(in);
+        } catch (IOException e) {
+            log.error("===[JsonCodec][read]: ", e);
+        }
+        return null;
+    }
+
+    /**
+     * 转为json字符串, 失败时返回空串
+     */
+    public String write(T value) {
+        try {
+            return writer.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            log.error("===[JsonCodec][write]: ", e);
+        }
+        return "";
+    }
+
+    /**
+     * 转为UTF-8编码的json字节, 失败时返回空数组
+     */
+    public byte[] writeBytes(T value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            log.error("===[JsonCodec][writeBytes]: ", e);
+        }
+        return new byte[0];
+    }
+
+    public ObjectReader getReader() {
+        return reader;
+    }
+
+    public ObjectWriter getWriter() {
+        return writer;
+    }
+}
@@ -1,55 +1,163 @@
 package com.frestream.core.utils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class JsonUtil {
 
     private final static ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+    /**
+     * 字节码生成属性访问器的模块(可选依赖), 在类路径中时自动注册; 启动参数 -Dfrestream.json.afterburner=false 关闭
+     */
+    private static final String AFTERBURNER_MODULE = "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
+    /**
+     * 按声明类型缓存预先构建的 reader / writer, 避免每次调用重新构造 JavaType 及查找根序列化器;
+     * writer 只缓存通过 codec / writer 显式请求的类型, 不按运行时类型缓存, 避免代理类、匿名类占用类加载器
+     */
+    private static final Map<JavaType, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    /**
+     * 按运行时类型序列化的 writer
+     */
+    private static final ObjectWriter WRITER;
+
+    private static final JavaType MAP_TYPE;
+    private static final JavaType LIST_MAP_TYPE;
+
     static {
         OBJECT_MAPPER.setSerializationInclusion(JsonInclude.Include.NON_NULL);
         OBJECT_MAPPER.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+        // 流由调用方关闭
+        OBJECT_MAPPER.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+        OBJECT_MAPPER.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        registerAfterburner();
+        WRITER = OBJECT_MAPPER.writer();
+        MAP_TYPE = getMapType(Map.class, String.class, Object.class);
+        LIST_MAP_TYPE = getCollectionType(ArrayList.class);
     }
 
     private JsonUtil() {}
 
+    /**
+     * 共享的 ObjectMapper; 已缓存的 reader / writer 不会感知之后对其配置的修改
+     */
     public static ObjectMapper getInstance() {
         return OBJECT_MAPPER;
     }
 
+    /**
+     * 指定类型的读写句柄
+     */
+    public static <T> JsonCodec<T> codec(Class<T> clazz) {
+        return new JsonCodec<>(reader(OBJECT_MAPPER.constructType(clazz)), writer(clazz));
+    }
+
+    /**
+     * List的读写句柄
+     *
+     * @param clazz 集合中的元素类型
+     */
+    public static <T> JsonCodec<List<T>> listCodec(Class<T> clazz) {
+        return new JsonCodec<>(reader(getCollectionType(ArrayList.class, clazz)), writer(List.class));
+    }
+
+    /**
+     * Map的读写句柄
+     */
+    public static <K, V> JsonCodec<Map<K, V>> mapCodec(Class<K> keyClass, Class<V> valueClass) {
+        return new JsonCodec<>(reader(getMapType(Map.class, keyClass, valueClass)), writer(Map.class));
+    }
+
+    /**
+     * 指定类型的 ObjectReader, 按类型缓存
+     */
+    public static ObjectReader reader(JavaType javaType) {
+        return READERS.computeIfAbsent(javaType, OBJECT_MAPPER::readerFor);
+    }
+
+    /**
+     * 指定声明类型的 ObjectWriter, 按类型缓存; 只应传入固定的声明类型, 不要传入 getClass() 的结果
+     */
+    public static ObjectWriter writer(Class<?> clazz) {
+        return WRITERS.computeIfAbsent(clazz, OBJECT_MAPPER::writerFor);
+    }
+
     /**
      * 转为json字符串
      */
     public static String toJson(Object obj) {
         try {
-            return OBJECT_MAPPER.writeValueAsString(obj);
+            return WRITER.writeValueAsString(obj);
         } catch (JsonProcessingException e) {
             log.error("===[JsonUtil][toJson]: ", e);
         }
         return "";
     }
 
+    /**
+     * 转为UTF-8编码的json字节, 直接编码为字节, 不经过String
+     */
+    public static byte[] toJsonBytes(Object obj) {
+        try {
+            return WRITER.writeValueAsBytes(obj);
+        } catch (JsonProcessingException e) {
+            log.error("===[JsonUtil][toJsonBytes]: ", e);
+        }
+        return new byte[0];
+    }
+
+    /**
+     * 以UTF-8编码写入输出流, 不关闭输出流
+     *
+     * @return 是否写入成功
+     */
+    public static boolean toJson(Object obj, OutputStream out) {
+        try {
+            WRITER.writeValue(out, obj);
+            return true;
+        } catch (IOException e) {
+            log.error("===[JsonUtil][toJson]: ", e);
+        }
+        return false;
+    }
+
     /**
      * 将json字符串格式化后输出
      */
     public static String toJsonFormat(Object obj) {
         try {
-            return OBJECT_MAPPER.writeValueAsString(obj);
+            return WRITER.writeValueAsString(obj);
         } catch (JsonProcessingException e) {
             log.error("===[JsonUtil][toJsonFormat]: ", e);
         }
         return "";
     }
 
+    /**
+     * 查找任意层级中第一个名称为key的字段值; 同一文档取多个字段时使用 {@link JsonFieldExtractor} 一次读取
+     */
     public static String getNodeValue(String jsonStr, String key) {
         try {
             JsonNode jsonNode = OBJECT_MAPPER.readTree(jsonStr);
@@ -65,13 +173,49 @@ public class JsonUtil {
      */
     public static <T> T fromJson(String jsonString, Class<T> clazz) {
         try {
-            return OBJECT_MAPPER.readValue(jsonString, clazz);
+            return reader(OBJECT_MAPPER.constructType(clazz)).readValue(jsonString);
         } catch (JsonProcessingException e) {
             log.error("===[JsonUtil][fromJson]: ", e);
         }
         return null;
     }
 
+    /**
+     * 从字节解析, 编码自动识别 (UTF-8/16/32)
+     */
+    public static <T> T fromJson(byte[] bytes, Class<T> clazz) {
+        try {
+            return reader(OBJECT_MAPPER.constructType(clazz)).readValue(bytes);
+        } catch (IOException e) {
+            log.error("===[JsonUtil][fromJson]: ", e);
+        }
+        return null;
+    }
+
+    /**
+     * 从 ByteBuffer 的 position 到 limit 之间解析, 不改变 ByteBuffer 的 position
+     */
+    public static <T> T fromJson(ByteBuffer buffer, Class<T> clazz) {
+        try {
+            return readValue(reader(OBJECT_MAPPER.constructType(clazz)), buffer);
+        } catch (IOException e) {
+            log.error("===[JsonUtil][fromJson]: ", e);
+        }
+        return null;
+    }
+
+    /**
+     * 从输入流解析, 不关闭输入流
+     */
+    public static <T> T fromJson(InputStream in, Class<T> clazz) {
+        try {
+            return reader(OBJECT_MAPPER.constructType(clazz)).readValue(in);
+        } catch (IOException e) {
+            log.error("===[JsonUtil][fromJson]: ", e);
+        }
+        return null;
+    }
+
     /**
      * json转List
      *
@@ -82,7 +226,7 @@ public class JsonUtil {
 
         JavaType javaType = getCollectionType(ArrayList.class, clazz);
         try {
-            return OBJECT_MAPPER.readValue(jsonArrayStr, javaType);
+            return reader(javaType).readValue(jsonArrayStr);
         } catch (JsonProcessingException e) {
             log.error("===[JsonUtil][fromJsonToList]: ", e);
         }
@@ -96,9 +240,8 @@ public class JsonUtil {
      */
     public static List<Map<String, Object>> fromJsonToListMap(String jsonArrayStr) {
 
-        JavaType javaType = getCollectionType(ArrayList.class);
         try {
-            return OBJECT_MAPPER.readValue(jsonArrayStr, javaType);
+            return reader(LIST_MAP_TYPE).readValue(jsonArrayStr);
         } catch (JsonProcessingException e) {
             log.error("===[JsonUtil][fromJsonToListMap]: ", e);
         }
@@ -112,15 +255,50 @@ public class JsonUtil {
      */
     public static Map<String, Object> fromJsonToMap(String jsonMapStr) {
 
-        JavaType javaType = getMapType(Map.class, String.class, Object.class);
         try {
-            return OBJECT_MAPPER.readValue(jsonMapStr, javaType);
+            return reader(MAP_TYPE).readValue(jsonMapStr);
         } catch (JsonProcessingException e) {
             log.error("===[JsonUtil][fromJsonToMap]: ", e);
         }
         return new HashMap<>();
     }
 
+    /**
+     * 从字节解析为Map
+     */
+    public static Map<String, Object> fromJsonToMap(byte[] bytes) {
+        try {
+            return reader(MAP_TYPE).readValue(bytes);
+        } catch (IOException e) {
+            log.error("===[JsonUtil][fromJsonToMap]: ", e);
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * 从 ByteBuffer 解析为Map, 不改变 ByteBuffer 的 position
+     */
+    public static Map<String, Object> fromJsonToMap(ByteBuffer buffer) {
+        try {
+            return readValue(reader(MAP_TYPE), buffer);
+        } catch (IOException e) {
+            log.error("===[JsonUtil][fromJsonToMap]: ", e);
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * 从输入流解析为Map, 不关闭输入流
+     */
+    public static Map<String, Object> fromJsonToMap(InputStream in) {
+        try {
+            return reader(MAP_TYPE).readValue(in);
+        } catch (IOException e) {
+            log.error("===[JsonUtil][fromJsonToMap]: ", e);
+        }
+        return new HashMap<>();
+    }
+
     /**
      * json转Map, 指定泛型
      * @param jsonMapStr json串
@@ -131,7 +309,7 @@ public class JsonUtil {
 
         JavaType javaType = getMapType(Map.class, keyClass, valueClass);
         try {
-            return OBJECT_MAPPER.readValue(jsonMapStr, javaType);
+            return reader(javaType).readValue(jsonMapStr);
         } catch (JsonProcessingException e) {
             log.error("===[JsonUtil][fromJsonToMap]: ", e);
         }
@@ -146,6 +324,31 @@ public class JsonUtil {
 
     // ============================================== private
 
+    /**
+     * 堆内 ByteBuffer 直接读取底层数组, 堆外时按流读取
+     */
+    private static <T> T readValue(ObjectReader reader, ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return reader.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return reader.readValue(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    /**
+     * 注册 Afterburner 模块, 以生成的字节码代替反射读写bean属性; 未引入依赖时使用反射
+     */
+    private static void registerAfterburner() {
+        if ("false".equalsIgnoreCase(System.getProperty("frestream.json.afterburner"))) {
+            return;
+        }
+        try {
+            Class.forName(AFTERBURNER_MODULE, false, JsonUtil.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return;
+        }
+        Afterburner.register(OBJECT_MAPPER);
+    }
+
     /**
      * 获取collection中的泛型
      *
@@ -173,4 +376,14 @@ public class JsonUtil {
     private static JavaType getMapType(Class<?> mapClass, Class<?> keyClass, Class<?> valueClass) {
         return OBJECT_MAPPER.getTypeFactory().constructMapLikeType(Map.class, keyClass, valueClass);
     }
+
+    /**
+     * 单独的类引用 AfterburnerModule, 未引入依赖时不会被加载
+     */
+    private static final class Afterburner {
+
+        private static void register(ObjectMapper mapper) {
+            mapper.registerModule(new AfterburnerModule());
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package com.frestream.core.excel;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @description: Excel注解校验规则
+ *
+ * @author: TJ
+ * @date:  2022-05-26
+ **/
+class ExcelAnnotationHandlerTest {
+
+    @SuppressWarnings("unused")
+    private static class Row {
+
+        @Excel(columnName = "日期", dateFormat = "yyyy-MM-dd")
+        private String date;
+
+        @Excel(columnName = "时间", dateFormat = "yyyy-MM-dd HH:mm:ss", required = true)
+        private String time;
+
+        @Excel(dateFormat = "yyyy-MM-dd")
+        private Date converted;
+
+        @Excel(columnName = "手机号", required = true, min = 11, max = 11, regexp = "1\\d{10}")
+        private String mobile;
+    }
+
+    @Test
+    void strictDateFormat() {
+        Excel excel = excel("date");
+        assertNull(ExcelAnnotationHandler.checkValidity(excel, "2022-02-28"));
+        assertNull(ExcelAnnotationHandler.checkValidity(excel, "2024-02-29"));
+        assertEquals("[日期]日期时间格式不符合要求", ExcelAnnotationHandler.checkValidity(excel, "2022-02-29"));
+        assertEquals("[日期]日期时间格式不符合要求", ExcelAnnotationHandler.checkValidity(excel, "2022-02-30"));
+        assertEquals("[日期]日期时间格式不符合要求", ExcelAnnotationHandler.checkValidity(excel, "2022-13-01"));
+        assertEquals("[日期]日期时间格式不符合要求", ExcelAnnotationHandler.checkValidity(excel, "2022/02/28"));
+        assertEquals("[日期]日期时间格式不符合要求", ExcelAnnotationHandler.checkValidity(excel, "2022-02-28 10:00:00"));
+        // 非必填时空值不校验格式
+        assertNull(ExcelAnnotationHandler.checkValidity(excel, ""));
+        assertNull(ExcelAnnotationHandler.checkValidity(excel, null));
+    }
+
+    @Test
+    void strictDateTimeFormat() {
+        Excel excel = excel("time");
+        assertNull(ExcelAnnotationHandler.checkValidity(excel, "2022-10-01 23:59:59"));
+        assertEquals("[时间]日期时间格式不符合要求", ExcelAnnotationHandler.checkValidity(excel, "2022-10-01 24:00:00"));
+        assertEquals("[时间]必填项不能为空", ExcelAnnotationHandler.checkValidity(excel, " "));
+        assertEquals("[时间]必填项不能为空", ExcelAnnotationHandler.checkValidity(excel, "null"));
+    }
+
+    @Test
+    void dateFormatOnlyAppliesToTextFields() {
+        ExcelAnnotationHandler.Rule rule = ExcelAnnotationHandler.compile(excel("converted"), Date.class);
+        assertTrue(rule.isEmpty());
+        assertFalse(ExcelAnnotationHandler.compile(excel("date"), String.class).isEmpty());
+    }
+
+    @Test
+    void lengthAndRegexp() {
+        Excel excel = excel("mobile");
+        assertNull(ExcelAnnotationHandler.checkValidity(excel, "13800000000"));
+        assertEquals("[手机号]内容长度小于最低限度", ExcelAnnotationHandler.checkValidity(excel, "1380000"));
+        assertEquals("[手机号]内容长度超过限制", ExcelAnnotationHandler.checkValidity(excel, "138000000001"));
+        assertEquals("[手机号]内容不符合要求", ExcelAnnotationHandler.checkValidity(excel, "23800000000"));
+        assertEquals("[手机号]必填项不能为空", ExcelAnnotationHandler.checkValidity(excel, null));
+    }
+
+    @Test
+    void validatorsAreCachedByClassAndFields() throws NoSuchFieldException {
+        ExcelValidator<Row> byClass = ExcelValidator.of(Row.class);
+        assertSame(byClass, ExcelValidator.of(ExcelValidator.getValidFields(Row.class)));
+
+        List<Field> fields = Collections.singletonList(Row.class.getDeclaredField("mobile"));
+        ExcelValidator<Row> byFields = ExcelValidator.of(fields);
+        assertSame(byFields, ExcelValidator.of(new ArrayList<>(fields)));
+        assertNotSame(byClass, byFields);
+
+        Row row = new Row();
+        row.mobile = "13800000000";
+        assertNull(byFields.validate(row));
+        assertEquals("[时间]必填项不能为空", byClass.validate(row));
+    }
+
+    private static Excel excel(String fieldName) {
+        try {
+            Field field = Row.class.getDeclaredField(fieldName);
+            return field.getAnnotation(Excel.class);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
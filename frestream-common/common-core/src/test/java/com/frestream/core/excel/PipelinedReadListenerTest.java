@@ -0,0 +1,176 @@
+package com.frestream.core.excel;
+
+import com.alibaba.excel.EasyExcel;
+import com.frestream.core.utils.ExcelUtil;
+import lombok.Data;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @description: 并行导入, 使用内存中生成的xlsx; 每10行有一行名称为空, 校验不通过
+ *
+ * @author: TJ
+ * @date:  2022-10-01
+ **/
+class PipelinedReadListenerTest {
+
+    private static final int ROWS = 1000;
+
+    @Data
+    public static class Row {
+
+        @Excel(columnName = "编号", required = true)
+        private String id;
+
+        @Excel(columnName = "名称", required = true)
+        private String name;
+
+        /**
+         * 编号为 boom 时校验抛出异常
+         */
+        public String getId() {
+            if ("boom".equals(id)) {
+                throw new IllegalStateException("boom");
+            }
+            return id;
+        }
+    }
+
+    @AfterEach
+    void noImportThreadLeft() throws InterruptedException {
+        // 线程池结束后工作线程可能仍在退出中
+        long deadline = System.currentTimeMillis() + 1000L;
+        while (!importThreads().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(Collections.emptyList(), importThreads());
+    }
+
+    @Test
+    void orderedDeliversInRowOrderOnCaller() {
+        List<String> ids = new ArrayList<>();
+        Set<Thread> threads = new HashSet<>();
+        List<ExcelFailResult> failResults = importData(options(true), rows -> {
+            threads.add(Thread.currentThread());
+            rows.forEach(row -> ids.add(row.getId()));
+        });
+
+        assertEquals(validIds(), ids);
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+        assertFailResultsSorted(failResults);
+    }
+
+    @Test
+    void unorderedDeliversEveryRowOnWorkers() {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        List<ExcelFailResult> failResults = importData(options(false), rows -> {
+            threadNames.add(Thread.currentThread().getName());
+            rows.forEach(row -> assertTrue(ids.add(row.getId())));
+        });
+
+        assertEquals(new HashSet<>(validIds()), ids);
+        assertTrue(threadNames.stream().allMatch(name -> name.startsWith("excel-import-")), threadNames.toString());
+        assertFailResultsSorted(failResults);
+    }
+
+    @Test
+    void consumerErrorCancelsImport() {
+        for (boolean ordered : new boolean[]{true, false}) {
+            IllegalStateException failure = new IllegalStateException("consumer");
+            AtomicInteger calls = new AtomicInteger();
+            IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> importData(options(ordered), rows -> {
+                if (calls.incrementAndGet() == 3) {
+                    throw failure;
+                }
+            }));
+            assertSame(failure, thrown);
+            if (ordered) {
+                // 调用线程上的消费者失败后不再交付
+                assertEquals(3, calls.get());
+            }
+            assertTrue(calls.get() < ROWS / 7, "导入未取消");
+        }
+    }
+
+    @Test
+    void validationErrorCancelsImport() {
+        for (boolean ordered : new boolean[]{true, false}) {
+            AtomicInteger delivered = new AtomicInteger();
+            IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                    () -> ExcelUtil.importData(xlsx(ROWS, 500), Row.class, (List<Row> rows) -> delivered.addAndGet(rows.size()), options(ordered)));
+            assertEquals("boom", thrown.getMessage());
+            assertTrue(delivered.get() < ROWS, "导入未取消");
+        }
+    }
+
+    private static List<ExcelFailResult> importData(ExcelImportOptions options, Consumer<List<Row>> consumer) {
+        return ExcelUtil.importData(xlsx(ROWS, -1), Row.class, consumer, options);
+    }
+
+    private static ExcelImportOptions options(boolean ordered) {
+        return new ExcelImportOptions().setWorkers(4).setBatchCount(7).setQueueCapacity(2).setOrdered(ordered);
+    }
+
+    /**
+     * 生成两行表头的xlsx, 第 boomRow 行的编号为 boom
+     */
+    private static ByteArrayInputStream xlsx(int rows, int boomRow) {
+        List<List<String>> head = Arrays.asList(Arrays.asList("导入数据", "编号"), Arrays.asList("导入数据", "名称"));
+        List<List<Object>> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String id = i == boomRow ? "boom" : String.valueOf(i);
+            data.add(Arrays.asList(id, i % 10 == 3 ? "" : "name" + i));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EasyExcel.write(out).head(head).sheet().doWrite(data);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static List<String> validIds() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            if (i % 10 != 3) {
+                ids.add(String.valueOf(i));
+            }
+        }
+        return ids;
+    }
+
+    private static void assertFailResultsSorted(List<ExcelFailResult> failResults) {
+        assertEquals(ROWS / 10, failResults.size());
+        for (int i = 0; i < failResults.size(); i++) {
+            ExcelFailResult failResult = failResults.get(i);
+            // 数据从第3行(行号2)开始
+            assertEquals(i * 10 + 3 + 2, failResult.getRowNUm());
+            assertEquals(String.valueOf(i * 10 + 3), ((Row) failResult.getRowData()).getId());
+        }
+    }
+
+    private static List<String> importThreads() {
+        List<String> names = new ArrayList<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("excel-import-") && thread.isAlive()) {
+                names.add(thread.getName());
+            }
+        }
+        return names;
+    }
+}
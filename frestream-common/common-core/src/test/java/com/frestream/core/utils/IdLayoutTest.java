@@ -0,0 +1,72 @@
+package com.frestream.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @description: ID位布局的组装与解析
+ *
+ * @author: TJ
+ * @date:  2022-09-27
+ **/
+class IdLayoutTest {
+
+    @Test
+    void defaultLayoutMatchesOriginalFormat() {
+        IdLayout layout = IdLayout.DEFAULT;
+        assertEquals(32, layout.getTimestampBits());
+        assertEquals(15L, layout.getWorkerIdMax());
+        assertEquals(16L, layout.getBackWorkerIdBegin());
+        assertEquals(65535L, layout.getSequenceMax());
+
+        // 与原实现相同: (秒 - 1546300800) << 21 | 机器id << 16 | 序列
+        long timestamp = 1546300800L + 123456L;
+        assertEquals((123456L << 21) | (1L << 16) | 7L, layout.compose(timestamp, 1L, 7L));
+    }
+
+    @Test
+    void composeAndDecode() {
+        IdLayout layout = new IdLayout(TimeUnit.MILLISECONDS, 1640995200L, 6, 12);
+        long timestamp = layout.getEpochUnits() + 987654321L;
+
+        IdInfo info = layout.decode(layout.compose(timestamp, 5L, 4095L));
+        assertEquals(timestamp, info.getTimestamp());
+        assertEquals(5L, info.getWorkerId());
+        assertEquals(4095L, info.getSequence());
+        assertFalse(info.isBackup());
+
+        IdInfo backup = layout.decode(layout.compose(timestamp, 5L ^ layout.getBackWorkerIdBegin(), 1L));
+        assertEquals(5L, backup.getWorkerId());
+        assertTrue(backup.isBackup());
+    }
+
+    @Test
+    void idsStayWithinSafeBits() {
+        IdLayout layout = IdLayout.DEFAULT;
+        long last = layout.getEpochUnits() + layout.getTimestampMax();
+        long id = layout.compose(last, layout.getWorkerIdMax() | layout.getBackWorkerIdBegin(), layout.getSequenceMax());
+        assertEquals((1L << IdLayout.SAFE_BITS) - 1, id);
+    }
+
+    @Test
+    void rejectsTimestampOutOfRange() {
+        IdLayout layout = IdLayout.DEFAULT;
+        assertThrows(IllegalStateException.class, () -> layout.compose(layout.getEpochUnits() - 1, 1L, 1L));
+        assertThrows(IllegalStateException.class,
+                () -> layout.compose(layout.getEpochUnits() + layout.getTimestampMax() + 1, 1L, 1L));
+    }
+
+    @Test
+    void rejectsInvalidLayout() {
+        assertThrows(IllegalArgumentException.class, () -> new IdLayout(TimeUnit.MINUTES, 0L, 5, 16));
+        assertThrows(IllegalArgumentException.class, () -> new IdLayout(TimeUnit.SECONDS, 0L, 0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new IdLayout(TimeUnit.SECONDS, 0L, 30, 23));
+        assertThrows(IllegalArgumentException.class, () -> new IdLayout(TimeUnit.SECONDS, -1L, 5, 16));
+    }
+}
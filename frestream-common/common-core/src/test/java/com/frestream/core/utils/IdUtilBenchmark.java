@@ -0,0 +1,110 @@
+package com.frestream.core.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description:
+ *   ID生成吞吐量: 无锁CAS实现与原 synchronized 实现在 1 ~ N 个线程下的对比.
+ *   使用毫秒级、20位序列的布局, 避免默认布局每秒 65535 个的容量上限使测试变成等待时钟.
+ *   运行: mvn test-compile -pl frestream-common/common-core 后执行本类的 main 方法, 参数为最大线程数(默认CPU核数)
+ *
+ * @author: TJ
+ * @date:  2022-09-27
+ **/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdUtilBenchmark {
+
+    private IdLayout layout;
+    private SynchronizedIdGenerator synchronizedGenerator;
+
+    @Setup
+    public void setUp() {
+        // 31位毫秒时间戳可用约24天, 起始时间取当前时间之前1小时
+        layout = new IdLayout(TimeUnit.MILLISECONDS, System.currentTimeMillis() / 1000 - 3600, 2, 20);
+        IdUtil.configure(layout);
+        synchronizedGenerator = new SynchronizedIdGenerator(layout, 1L);
+    }
+
+    @Benchmark
+    public long casNextId() {
+        return IdUtil.nextId();
+    }
+
+    @Benchmark
+    public long synchronizedNextId() {
+        return synchronizedGenerator.nextId();
+    }
+
+    /**
+     * 原实现: 时间戳与序列为两个字段, 整个方法在同一个锁上串行
+     */
+    static final class SynchronizedIdGenerator {
+
+        private final IdLayout layout;
+        private final long workerId;
+        private long lastTimestamp;
+        private long sequence;
+        private long lastTimestampBak;
+        private long sequenceBak;
+
+        SynchronizedIdGenerator(IdLayout layout, long workerId) {
+            this.layout = layout;
+            this.workerId = workerId;
+        }
+
+        synchronized long nextId() {
+            long timestamp = layout.now();
+            if (timestamp < lastTimestamp) {
+                return nextIdBackup(timestamp);
+            }
+            if (timestamp != lastTimestamp) {
+                lastTimestamp = timestamp;
+                sequence = 0L;
+            }
+            if (0L == (++sequence & layout.getSequenceMax())) {
+                sequence--;
+                return nextIdBackup(timestamp);
+            }
+            return layout.compose(timestamp, workerId, sequence);
+        }
+
+        private long nextIdBackup(long timestamp) {
+            if (timestamp < lastTimestampBak) {
+                if (lastTimestampBak - layout.now() > layout.getBackTimeMax()) {
+                    throw new RuntimeException(String.format("时钟回拨: now: [%d] last: [%d]", timestamp, lastTimestampBak));
+                }
+                timestamp = lastTimestampBak;
+            }
+            if (timestamp != lastTimestampBak) {
+                lastTimestampBak = timestamp;
+                sequenceBak = 0L;
+            }
+            if (0L == (++sequenceBak & layout.getSequenceMax())) {
+                return nextIdBackup(timestamp + 1);
+            }
+            return layout.compose(timestamp, workerId ^ layout.getBackWorkerIdBegin(), sequenceBak);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(IdUtilBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
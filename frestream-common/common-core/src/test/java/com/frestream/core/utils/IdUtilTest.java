@@ -0,0 +1,109 @@
+package com.frestream.core.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @description: 使用默认布局生成ID, 每秒最多 65535 个, 除借用上限用例外各用例生成的个数保持在该范围内
+ *
+ * @author: TJ
+ * @date:  2022-09-27
+ **/
+class IdUtilTest {
+
+    @AfterEach
+    void restoreWorker() {
+        IdUtil.assignWorkerId(1L, Long.MAX_VALUE);
+    }
+
+    @Test
+    void decodesWorkerAndTime() {
+        long before = System.currentTimeMillis() / 1000 * 1000;
+        IdInfo info = IdUtil.decode(IdUtil.nextId());
+        assertEquals(1L, info.getWorkerId());
+        assertTrue(info.getTimestamp() >= before && info.getTimestamp() <= System.currentTimeMillis());
+        assertTrue(info.getSequence() > 0);
+    }
+
+    @Test
+    void batchIdsAreUniqueAndIncreasing() {
+        long[] ids = IdUtil.nextIds(5000);
+        Set<Long> unique = new HashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            assertTrue(unique.add(ids[i]));
+            if (i > 0 && !IdUtil.decode(ids[i]).isBackup()) {
+                assertTrue(ids[i] > ids[i - 1]);
+            }
+        }
+    }
+
+    @Test
+    void concurrentIdsAreUnique() throws InterruptedException {
+        int threads = 8;
+        int perThread = 2000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(IdUtil.nextId());
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(threads * perThread, ids.size());
+    }
+
+    @Test
+    void backupBorrowsAtMostBackTimeMaxAhead() {
+        IdLayout layout = IdUtil.getLayout();
+        long[] ids = IdUtil.nextIds((int) layout.getSequenceMax() * 4);
+        long aheadMax = layout.getTimeUnit().toMillis(layout.getBackTimeMax());
+        long now = System.currentTimeMillis();
+        Set<Long> unique = new HashSet<>();
+        for (long id : ids) {
+            assertTrue(unique.add(id));
+            assertTrue(IdUtil.decode(id).getTimestamp() <= now + aheadMax);
+        }
+    }
+
+    @Test
+    void refusesWithoutLease() {
+        IdUtil.revokeWorkerId();
+        assertEquals(-1L, IdUtil.getWorkerId());
+        assertThrows(IllegalStateException.class, IdUtil::nextId);
+
+        IdUtil.assignWorkerId(2L, System.currentTimeMillis() - 1);
+        assertThrows(IllegalStateException.class, IdUtil::nextId);
+
+        IdUtil.assignWorkerId(3L, System.currentTimeMillis() + 60_000L);
+        assertEquals(3L, IdUtil.decode(IdUtil.nextId()).getWorkerId());
+    }
+
+    @Test
+    void rejectsWorkerIdOutOfLayout() {
+        assertThrows(IllegalArgumentException.class, () -> IdUtil.assignWorkerId(IdUtil.getLayout().getWorkerIdMax() + 1, Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> IdUtil.nextIds(0));
+    }
+}
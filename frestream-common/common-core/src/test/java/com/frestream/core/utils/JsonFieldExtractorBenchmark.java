@@ -0,0 +1,82 @@
+package com.frestream.core.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description:
+ *   宽文档多字段取值: 每个字段调用一次 JsonUtil.getNodeValue (每次构建 JsonNode 树再查找)
+ *   与 JsonFieldExtractor 一次读取的对比; 字段位于文档前部时可提前结束, 位于末尾时需读完整个文档.
+ *   运行: mvn test-compile -pl frestream-common/common-core 后执行本类的 main 方法
+ *
+ * @author: TJ
+ * @date:  2022-09-30
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonFieldExtractorBenchmark {
+
+    /**
+     * 文档字段数
+     */
+    @Param({"50", "500"})
+    private int width;
+
+    /**
+     * 所取字段的位置: head 文档前部, tail 文档末尾
+     */
+    @Param({"head", "tail"})
+    private String position;
+
+    private String json;
+    private String[] paths;
+    private JsonFieldExtractor extractor;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        for (int i = 0; i < width; i++) {
+            Map<String, Object> nested = new LinkedHashMap<>();
+            nested.put("code", "C" + i);
+            nested.put("value", i * 1.5D);
+            document.put("field" + i, i % 3 == 0 ? nested : "value-" + i);
+        }
+        json = JsonUtil.toJson(document);
+
+        paths = new String[5];
+        int begin = "head".equals(position) ? 1 : width - 13;
+        for (int i = 0; i < paths.length; i++) {
+            // 下标除3余1, 均为字符串字段
+            paths[i] = "field" + (begin + i * 3);
+        }
+        extractor = JsonFieldExtractor.compile(paths);
+    }
+
+    @Benchmark
+    public String[] getNodeValue() {
+        String[] values = new String[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            values[i] = JsonUtil.getNodeValue(json, paths[i]);
+        }
+        return values;
+    }
+
+    @Benchmark
+    public String[] extractor() {
+        return extractor.extract(json);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonFieldExtractorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,74 @@
+package com.frestream.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @description: 多字段json取值, 结果与 JsonUtil.getNodeValue (JsonNode.asText) 一致
+ *
+ * @author: TJ
+ * @date:  2022-09-30
+ **/
+class JsonFieldExtractorTest {
+
+    private static final String JSON = "{\"id\":1024,\"name\":\"张三\",\"vip\":true,\"score\":98.5,\"remark\":null,"
+            + "\"tags\":[\"a\",\"b\"],\"user\":{\"name\":\"李四\",\"address\":{\"city\":\"杭州\"},\"ignored\":[{\"name\":\"x\"}]},"
+            + "\"extra\":{\"name\":\"王五\"}}";
+
+    @Test
+    void extractsScalarsInPathOrder() {
+        JsonFieldExtractor extractor = JsonFieldExtractor.compile("name", "id", "vip", "score", "remark");
+        assertArrayEquals(new String[]{"张三", "1024", "true", "98.5", "null"}, extractor.extract(JSON));
+        for (String path : extractor.getPaths()) {
+            assertEquals(JsonUtil.getNodeValue(JSON, path), extractor.extract(JSON)[indexOf(extractor, path)]);
+        }
+    }
+
+    @Test
+    void extractsNestedPaths() {
+        JsonFieldExtractor extractor = JsonFieldExtractor.compile("user.name", "user.address.city", "extra.name", "user.address");
+        assertArrayEquals(new String[]{"李四", "杭州", "王五", ""}, extractor.extract(JSON));
+    }
+
+    @Test
+    void containersAndMissingFields() {
+        JsonFieldExtractor extractor = JsonFieldExtractor.compile("tags", "user", "missing", "user.missing");
+        assertArrayEquals(new String[]{"", "", null, null}, extractor.extract(JSON));
+    }
+
+    @Test
+    void readsBytesAndKeepsFirstValue() {
+        JsonFieldExtractor extractor = JsonFieldExtractor.compile("name", "id");
+        assertArrayEquals(new String[]{"张三", "1024"}, extractor.extract(JSON.getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(new String[]{"a", "1"}, extractor.extract("{\"name\":\"a\",\"id\":1,\"name\":\"b\"}"));
+    }
+
+    @Test
+    void returnsPartialResultOnMalformedJson() {
+        JsonFieldExtractor extractor = JsonFieldExtractor.compile("name", "id");
+        assertArrayEquals(new String[]{"张三", null}, extractor.extract("{\"name\":\"张三\",\"id\":"));
+        assertArrayEquals(new String[]{null, null}, extractor.extract("[1,2]"));
+        assertArrayEquals(new String[]{null, null}, extractor.extract((String) null));
+    }
+
+    @Test
+    void rejectsInvalidPaths() {
+        assertThrows(IllegalArgumentException.class, () -> JsonFieldExtractor.compile("user..name"));
+        assertThrows(IllegalArgumentException.class, () -> JsonFieldExtractor.compile("name", "name"));
+    }
+
+    private static int indexOf(JsonFieldExtractor extractor, String path) {
+        String[] paths = extractor.getPaths();
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i].equals(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,30 @@
+package com.frestream.common.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * @description: 删除 {@link Cached} 缓存的方法结果
+ *
+ * @author: TJ
+ * @date:  2022-09-08
+ **/
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CacheEvict {
+
+    /**
+     * 缓存名称, 与 {@link Cached#value()} 一致
+     */
+    String value();
+
+    /**
+     * 缓存key, SpEL表达式; 为空时使用全部参数拼接
+     */
+    String key() default "";
+
+    /**
+     * 是否在方法执行前删除; 默认方法执行成功后删除
+     */
+    boolean beforeInvocation() default false;
+}
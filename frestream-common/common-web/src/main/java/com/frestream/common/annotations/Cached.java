@@ -0,0 +1,53 @@
+package com.frestream.common.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * @description:
+ *   缓存方法返回结果, 未命中时执行方法并写入Redis;
+ *   同一key的并发未命中只执行一次方法, 热点key在过期前后台提前刷新
+ *
+ * @author: TJ
+ * @date:  2022-09-08
+ **/
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Cached {
+
+    /**
+     * 缓存名称, 作为key前缀
+     */
+    String value();
+
+    /**
+     * 缓存key, SpEL表达式, 如: #id、#user.id、#p0; 为空时使用全部参数拼接
+     */
+    String key() default "";
+
+    /**
+     * 过期时间, 单位秒
+     */
+    long time() default 3600L;
+
+    /**
+     * 过期时间随机增加 0 ~ jitter 秒, 避免同一批key同时过期
+     */
+    long jitter() default 0L;
+
+    /**
+     * 满足条件时才使用缓存, SpEL表达式; 为空时总是使用
+     */
+    String condition() default "";
+
+    /**
+     * 满足条件时不缓存结果, SpEL表达式, 可通过 #result 引用返回值;
+     * 指定后不支持提前刷新
+     */
+    String unless() default "";
+
+    /**
+     * 是否缓存null结果(短时间), 防止不存在的数据反复查询数据库
+     */
+    boolean cacheNull() default true;
+}
@@ -0,0 +1,52 @@
+package com.frestream.common.annotations;
+
+import com.frestream.cache.limit.RateLimitAlgorithm;
+
+import java.lang.annotation.*;
+
+/**
+ * @description: 接口集群限流, 由 CommonInterceptor 执行; 可标注在 Controller 类或方法上
+ *
+ * @author: TJ
+ * @date:  2022-09-13
+ **/
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RateLimit {
+
+    /**
+     * 限流算法
+     */
+    RateLimitAlgorithm algorithm() default RateLimitAlgorithm.TOKEN_BUCKET;
+
+    /**
+     * 令牌桶: 每秒生成令牌数; 滑动窗口: 窗口内允许的请求数
+     */
+    double rate();
+
+    /**
+     * 令牌桶容量, 小于等于0时取 rate
+     */
+    long capacity() default 0L;
+
+    /**
+     * 滑动窗口大小, 单位毫秒
+     */
+    long window() default 1000L;
+
+    /**
+     * 本地预取令牌数, 大于1时开启
+     */
+    int leaseSize() default 1;
+
+    /**
+     * 是否按客户端ip分别限流; 客户端ip取直连地址, 经可信代理(frestream.rate-limit.trusted-proxies)转发时取 X-Forwarded-For 中的地址
+     */
+    boolean perIp() default false;
+
+    /**
+     * 被限流时的提示
+     */
+    String message() default "请求过于频繁, 请稍后再试";
+}
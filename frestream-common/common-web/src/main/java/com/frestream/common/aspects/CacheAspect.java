@@ -0,0 +1,256 @@
+package com.frestream.common.aspects;
+
+import cn.hutool.core.util.StrUtil;
+import com.frestream.cache.redis.RedisService;
+import com.frestream.common.annotations.CacheEvict;
+import com.frestream.common.annotations.Cached;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: 处理 @Cached / @CacheEvict 注解, 方法的key表达式、监控指标等在首次调用时解析并缓存
+ *
+ * @author: TJ
+ * @date:  2022-09-08
+ **/
+@Aspect
+@Component
+@Slf4j
+public class CacheAspect {
+
+    private static final String KEY_SEPARATOR = ":";
+
+    @Autowired
+    private RedisService redisService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 表达式多次执行后编译为字节码
+     */
+    private final SpelExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, CacheAspect.class.getClassLoader()));
+    private final ParameterNameDiscoverer nameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    private final Map<Method, CachedOperation> cachedOperations = new ConcurrentHashMap<>();
+    private final Map<Method, KeyGenerator> evictOperations = new ConcurrentHashMap<>();
+
+    /**
+     * 切点为使用 @Cached 注解标注的方法
+     */
+    @Pointcut("@annotation(com.frestream.common.annotations.Cached)")
+    public void cachedPointcut() { }
+
+    /**
+     * 切点为使用 @CacheEvict 注解标注的方法
+     */
+    @Pointcut("@annotation(com.frestream.common.annotations.CacheEvict)")
+    public void evictPointcut() { }
+
+    @Around("cachedPointcut()")
+    public Object cached(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        CachedOperation operation = cachedOperations.computeIfAbsent(method, this::parseCached);
+        Object[] args = joinPoint.getArgs();
+
+        StandardEvaluationContext context = operation.keyGenerator.createContext(args);
+        if (operation.condition != null && !Boolean.TRUE.equals(operation.condition.getValue(context, Boolean.class))) {
+            return joinPoint.proceed();
+        }
+
+        String key = operation.keyGenerator.generate(context, args);
+        long time = operation.time;
+        if (operation.jitter > 0) {
+            time += ThreadLocalRandom.current().nextLong(operation.jitter + 1);
+        }
+
+        if (operation.unless != null) {
+            return cachedUnless(joinPoint, operation, context, key, time);
+        }
+
+        // 只由调用线程记录是否执行了加载; 后台刷新在其他线程执行同一 loader, 不写入也不计入未命中
+        Thread caller = Thread.currentThread();
+        boolean[] loaded = {false};
+        try {
+            Object result = operation.cacheNull
+                    ? redisService.getOrLoad(key, time, () -> load(joinPoint, operation, caller, loaded))
+                    : redisService.getOrLoad(key, time, 0L, () -> load(joinPoint, operation, caller, loaded));
+            (loaded[0] ? operation.miss : operation.hit).increment();
+            return result;
+        } catch (ProceedException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Around("evictPointcut()")
+    public Object evict(ProceedingJoinPoint joinPoint) throws Throwable {
+
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        KeyGenerator keyGenerator = evictOperations.computeIfAbsent(method, this::parseEvict);
+        CacheEvict cacheEvict = method.getAnnotation(CacheEvict.class);
+        Object[] args = joinPoint.getArgs();
+        String key = keyGenerator.generate(keyGenerator.createContext(args), args);
+
+        if (cacheEvict.beforeInvocation()) {
+            redisService.del(key);
+            return joinPoint.proceed();
+        }
+        Object proceed = joinPoint.proceed();
+        redisService.del(key);
+        return proceed;
+    }
+
+    /**
+     * 指定了 unless 时, 需根据返回值判断是否写入缓存
+     */
+    private Object cachedUnless(ProceedingJoinPoint joinPoint, CachedOperation operation,
+                                StandardEvaluationContext context, String key, long time) throws Throwable {
+        Object cached = redisService.get(key);
+        if (cached != null) {
+            operation.hit.increment();
+            return cached;
+        }
+        operation.miss.increment();
+
+        long start = System.nanoTime();
+        Object result = joinPoint.proceed();
+        operation.load.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        context.setVariable("result", result);
+        if (result != null && !Boolean.TRUE.equals(operation.unless.getValue(context, Boolean.class))) {
+            redisService.set(key, result, time);
+        }
+        return result;
+    }
+
+    private Object load(ProceedingJoinPoint joinPoint, CachedOperation operation, Thread caller, boolean[] loaded) {
+        if (Thread.currentThread() == caller) {
+            loaded[0] = true;
+        }
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            throw new ProceedException(e);
+        } finally {
+            operation.load.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private CachedOperation parseCached(Method method) {
+        Cached cached = method.getAnnotation(Cached.class);
+        String methodName = method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+
+        CachedOperation operation = new CachedOperation();
+        operation.keyGenerator = new KeyGenerator(cached.value(), parseExpression(cached.key()), method);
+        operation.condition = parseExpression(cached.condition());
+        operation.unless = parseExpression(cached.unless());
+        operation.time = cached.time();
+        operation.jitter = cached.jitter();
+        operation.cacheNull = cached.cacheNull();
+        operation.hit = meterRegistry.counter("frestream.cache.method.requests", "method", methodName, "result", "hit");
+        operation.miss = meterRegistry.counter("frestream.cache.method.requests", "method", methodName, "result", "miss");
+        operation.load = meterRegistry.timer("frestream.cache.method.load", "method", methodName);
+        return operation;
+    }
+
+    private KeyGenerator parseEvict(Method method) {
+        CacheEvict cacheEvict = method.getAnnotation(CacheEvict.class);
+        return new KeyGenerator(cacheEvict.value(), parseExpression(cacheEvict.key()), method);
+    }
+
+    private Expression parseExpression(String expression) {
+        return StrUtil.isBlank(expression) ? null : parser.parseExpression(expression);
+    }
+
+    /**
+     * 方法缓存的预解析信息
+     */
+    private static class CachedOperation {
+        private KeyGenerator keyGenerator;
+        private Expression condition;
+        private Expression unless;
+        private long time;
+        private long jitter;
+        private boolean cacheNull;
+        private Counter hit;
+        private Counter miss;
+        private Timer load;
+    }
+
+    /**
+     * 根据缓存名称和key表达式生成缓存key
+     */
+    private class KeyGenerator {
+
+        private final String prefix;
+        private final Expression key;
+        /**
+         * 参数可通过参数名或 #p0、#a0 引用
+         */
+        private final String[][] variableNames;
+
+        private KeyGenerator(String name, Expression key, Method method) {
+            this.prefix = name + KEY_SEPARATOR;
+            this.key = key;
+
+            String[] parameterNames = nameDiscoverer.getParameterNames(method);
+            this.variableNames = new String[method.getParameterCount()][];
+            for (int i = 0; i < variableNames.length; i++) {
+                variableNames[i] = parameterNames == null
+                        ? new String[]{"p" + i, "a" + i}
+                        : new String[]{parameterNames[i], "p" + i, "a" + i};
+            }
+        }
+
+        private StandardEvaluationContext createContext(Object[] args) {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            for (int i = 0; i < args.length; i++) {
+                for (String variableName : variableNames[i]) {
+                    context.setVariable(variableName, args[i]);
+                }
+            }
+            return context;
+        }
+
+        private String generate(StandardEvaluationContext context, Object[] args) {
+            if (key != null) {
+                return prefix + key.getValue(context, String.class);
+            }
+            return prefix + StrUtil.join(",", args);
+        }
+    }
+
+    /**
+     * 在 loader 中传递目标方法抛出的异常
+     */
+    private static class ProceedException extends RuntimeException {
+
+        private ProceedException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
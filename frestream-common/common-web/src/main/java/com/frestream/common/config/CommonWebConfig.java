@@ -1,9 +1,12 @@
 package com.frestream.common.config;
 
+import com.frestream.cache.limit.RedisRateLimiter;
 import com.frestream.common.handler.web.CommonInterceptor;
 import com.frestream.common.handler.web.CachingContentFilter;
 import com.frestream.common.handler.web.PostParamMethodArgumentResolver;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hibernate.validator.HibernateValidator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -25,6 +28,13 @@ import java.util.List;
 @Configuration
 public class CommonWebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private RedisRateLimiter rateLimiter;
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * 增加参数解析器
      */
@@ -39,7 +49,7 @@ public class CommonWebConfig implements WebMvcConfigurer {
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(new CommonInterceptor());
+        registry.addInterceptor(new CommonInterceptor(rateLimiter, rateLimitProperties, meterRegistry));
         WebMvcConfigurer.super.addInterceptors(registry);
     }
 
@@ -0,0 +1,84 @@
+package com.frestream.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description: 主键ID生成配置
+ *
+ * @author: TJ
+ * @date:  2022-09-26
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.id-generator")
+public class IdGeneratorProperties {
+
+    /**
+     * 每个线程预取的ID个数, 小于等于1时不预取
+     */
+    private int prefetchSize = 0;
+    /**
+     * 预取ID的最长保留时间, 超过后丢弃剩余ID重新预取, 避免ID中的时间与实际写入时间相差过大, 单位毫秒
+     */
+    private long prefetchMaxAgeMillis = 1000L;
+    /**
+     * ID时间戳单位, SECONDS 或 MILLISECONDS; 上线后修改布局会导致新旧ID无法按同一布局解析, 且可能重复
+     */
+    private TimeUnit timeUnit = TimeUnit.SECONDS;
+    /**
+     * 起始时间, Unix时间戳 (秒)
+     */
+    private long epoch = 1546300800L;
+    /**
+     * 机器id所占位数, 一半作为备份机器
+     */
+    private int workerBits = 5;
+    /**
+     * 自增序列所占位数; 时间戳位数 = 53 - 机器id位数 - 序列位数
+     */
+    private int sequenceBits = 16;
+    /**
+     * 机器id来源
+     */
+    private WorkerIdSource workerIdSource = WorkerIdSource.FIXED;
+    /**
+     * 固定机器id; FILE 模式下文件不存在时写入该值
+     */
+    private long workerId = 1L;
+    /**
+     * REDIS 模式下机器id租约时长, 单位秒; 节点宕机后超过该时间机器id才可被其他节点使用
+     */
+    private long leaseSeconds = 30L;
+    /**
+     * REDIS 模式下续约间隔, 单位秒; 须不超过 (租约时长 - 安全余量) / 2, 允许一次续约失败
+     */
+    private long renewSeconds = 10L;
+    /**
+     * REDIS 模式下租约安全余量, 单位秒: 本地租约比Redis中的租约提前该时间失效,
+     * 须覆盖一个时间单位、备份机器借用的时间(1秒)及节点间的时钟偏差
+     */
+    private long leaseMarginSeconds = 5L;
+    /**
+     * FILE 模式下保存机器id的本地文件, 为空时使用 ${user.home}/.frestream/worker-id-${spring.application.name}
+     */
+    private String workerIdFile;
+
+    public enum WorkerIdSource {
+        /**
+         * 使用配置的固定机器id, 适用于单节点
+         */
+        FIXED,
+        /**
+         * 从本地文件读取机器id, 适用于单节点或固定部署的多节点
+         */
+        FILE,
+        /**
+         * 从Redis租用机器id, 定时续约, 适用于弹性扩缩容; Redis不可用且本地租约失效时拒绝生成ID, 直到重新租用
+         */
+        REDIS
+    }
+}
@@ -0,0 +1,68 @@
+package com.frestream.common.config;
+
+import com.frestream.cache.limit.RateLimitRule;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @description: 按路由配置的接口限流, 优先级低于 @RateLimit 注解
+ *
+ * @author: TJ
+ * @date:  2022-09-13
+ **/
+@Data
+@Component
+@ConfigurationProperties(prefix = "frestream.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否开启限流
+     */
+    private boolean enabled = true;
+    /**
+     * 路由限流规则, 按配置顺序匹配第一个
+     */
+    private List<Route> routes = new ArrayList<>();
+    /**
+     * 可信代理的ip或IPv4网段(如 10.0.0.0/8); 按客户端ip限流时, 只有直连地址是可信代理才读取 X-Forwarded-For, 否则使用直连地址
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    /**
+     * 启动时校验路由规则
+     */
+    @PostConstruct
+    public void validate() {
+        for (Route route : routes) {
+            try {
+                route.validate();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("限流路由配置错误: " + route.getPath() + ", " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class Route extends RateLimitRule {
+
+        /**
+         * 请求路径, 支持Ant风格, 如: /sys-user/**
+         */
+        private String path;
+        /**
+         * 是否按客户端ip分别限流
+         */
+        private boolean perIp = false;
+        /**
+         * 被限流时的提示
+         */
+        private String message = "请求过于频繁, 请稍后再试";
+    }
+}
@@ -1,11 +1,14 @@
 package com.frestream.common.handler.mybatis;
 
 import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+import com.frestream.common.config.IdGeneratorProperties;
+import com.frestream.core.utils.IdLayout;
 import com.frestream.core.utils.IdUtil;
 import org.springframework.stereotype.Component;
 
 /**
- * @description: 自定义生成 15 位雪花ID, 兼容js中 number 类型精度
+ * @description: 自定义生成 15 位雪花ID, 兼容js中 number 类型精度;
+ *   开启预取时每个线程一次预留一段ID, 批量插入时每行只需移动下标; 机器id由 WorkerIdLease 分配
  * 
  * @author: TJ
  * @date:  2022-05-13
@@ -13,8 +16,45 @@ import org.springframework.stereotype.Component;
 @Component
 public class CustomIdGenerator implements IdentifierGenerator {
 
+    private final IdGeneratorProperties properties;
+    /**
+     * 线程内预取的ID
+     */
+    private final ThreadLocal<Prefetch> prefetches = ThreadLocal.withInitial(Prefetch::new);
+
+    public CustomIdGenerator(IdGeneratorProperties properties, WorkerIdLease workerIdLease) {
+        this.properties = properties;
+        IdUtil.configure(new IdLayout(properties.getTimeUnit(), properties.getEpoch(),
+                properties.getWorkerBits(), properties.getSequenceBits()));
+        workerIdLease.acquire();
+    }
+
     @Override
     public Number nextId(Object entity) {
-        return IdUtil.nextId();
+        int size = properties.getPrefetchSize();
+        if (size <= 1) {
+            return IdUtil.nextId();
+        }
+        Prefetch prefetch = prefetches.get();
+        if (prefetch.index >= prefetch.ids.length || System.currentTimeMillis() > prefetch.expireAt) {
+            prefetch.ids = IdUtil.nextIds(size);
+            prefetch.index = 0;
+            prefetch.expireAt = System.currentTimeMillis() + properties.getPrefetchMaxAgeMillis();
+        }
+        return prefetch.ids[prefetch.index++];
+    }
+
+    /**
+     * 批量获取ID, 用于手动组装批量插入的数据
+     */
+    public long[] nextIds(int n) {
+        return IdUtil.nextIds(n);
+    }
+
+    private static class Prefetch {
+
+        private long[] ids = new long[0];
+        private int index;
+        private long expireAt;
     }
 }
@@ -0,0 +1,248 @@
+package com.frestream.common.handler.mybatis;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.frestream.cache.redis.RedisService;
+import com.frestream.common.config.IdGeneratorProperties;
+import com.frestream.core.utils.IdLayout;
+import com.frestream.core.utils.IdUtil;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description:
+ *   机器id分配: REDIS 模式下依次尝试 SET NX EX 占用 id:worker:{应用名}:{机器id}, 成功后定时续约;
+ *   本地租约比Redis中的租约提前一个安全余量失效, 保证其他节点取得同一机器id时本节点已停止生成ID.
+ *   关闭时不删除租约, 停止生成ID后将租约缩短为安全余量, 余量覆盖已生成ID的最后时间单位及备份机器借用的时间,
+ *   滚动发布时新节点不会立即取得同一机器id而生成重复ID.
+ *   续约失败(租约丢失)时立即收回机器id, 以安全余量保留原key, 等待 续约间隔 + 安全余量 后再重新租用;
+ *   Redis不可用时本地租约到期后 IdUtil 拒绝生成ID;
+ *   启动时Redis不可用同样不分配机器id, 由续约线程重试. 租约只在分配与续约时访问Redis, 不影响生成ID
+ *
+ * @author: TJ
+ * @date:  2022-09-28
+ **/
+@Slf4j
+@Component
+public class WorkerIdLease {
+
+    private static final String KEY_PREFIX = "id:worker:";
+
+    private final RedisService redisService;
+    private final IdGeneratorProperties properties;
+    private final String applicationName;
+    /**
+     * 本节点的租约标识, 续约与释放时校验, 避免操作其他节点的租约
+     */
+    private final String token = UUID.randomUUID().toString();
+
+    private ScheduledExecutorService renewer;
+    /**
+     * 当前租用的key, 未租用时为null
+     */
+    private volatile String leasedKey;
+    /**
+     * 租约丢失后允许重新租用的时间, Unix时间戳 (毫秒)
+     */
+    private volatile long leaseAfter;
+
+    public WorkerIdLease(RedisService redisService, IdGeneratorProperties properties,
+                         @Value("${spring.application.name:default}") String applicationName) {
+        this.redisService = redisService;
+        this.properties = properties;
+        this.applicationName = applicationName;
+    }
+
+    /**
+     * 按配置的来源分配机器id, 须在 IdUtil 配置布局之后调用
+     */
+    public synchronized void acquire() {
+        switch (properties.getWorkerIdSource()) {
+            case REDIS:
+                acquireFromRedis();
+                break;
+            case FILE:
+                IdUtil.assignWorkerId(readFile(), Long.MAX_VALUE);
+                break;
+            default:
+                IdUtil.assignWorkerId(properties.getWorkerId(), Long.MAX_VALUE);
+        }
+        log.info("===[WorkerIdLease][acquire] 机器id: {} 来源: {}", IdUtil.getWorkerId(), properties.getWorkerIdSource());
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+        String key = leasedKey;
+        if (key == null) {
+            return;
+        }
+        leasedKey = null;
+        IdUtil.revokeWorkerId();
+        try {
+            // 不删除: 保留一个安全余量, 待已生成ID的时间单位过去后由Redis过期释放
+            redisService.compareAndExpire(key, token, properties.getLeaseMarginSeconds());
+        } catch (Exception e) {
+            log.warn("===[WorkerIdLease][release] 缩短租约失败, 租约到期后自动释放: {}", key, e);
+        }
+    }
+
+    private void acquireFromRedis() {
+        checkLease();
+        boolean exhausted = false;
+        try {
+            exhausted = lease() == null;
+        } catch (Exception e) {
+            // 不使用未经租用的机器id, 避免与其他节点重复, 由续约线程重试
+            IdUtil.revokeWorkerId();
+            log.error("===[WorkerIdLease][acquire] Redis不可用, 暂停生成ID, 每{}秒重试", properties.getRenewSeconds(), e);
+        }
+        if (exhausted) {
+            throw new IllegalStateException(String.format("机器id已全部被占用, 最多 %d 个节点: %s",
+                    IdUtil.getLayout().getWorkerIdMax() + 1, applicationName));
+        }
+        renewer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("worker-id-lease").setDaemon(true).build());
+        renewer.scheduleWithFixedDelay(this::renew, properties.getRenewSeconds(), properties.getRenewSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * 依次尝试占用空闲的机器id
+     *
+     * @return 租用的机器id, 全部被占用时返回null
+     */
+    private Long lease() {
+        for (long workerId = 0; workerId <= IdUtil.getLayout().getWorkerIdMax(); workerId++) {
+            String key = key(workerId);
+            long start = System.currentTimeMillis();
+            if (Boolean.TRUE.equals(redisService.setIfAbsent(key, token, properties.getLeaseSeconds()))) {
+                leasedKey = key;
+                IdUtil.assignWorkerId(workerId, deadline(start));
+                return workerId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 续约; 租约丢失时收回机器id, 等待后重新租用; 暂无空闲机器id时下次继续尝试
+     */
+    private synchronized void renew() {
+        String key = leasedKey;
+        long start = System.currentTimeMillis();
+        try {
+            if (key != null) {
+                if (Boolean.TRUE.equals(redisService.compareAndExpire(key, token, properties.getLeaseSeconds()))) {
+                    IdUtil.assignWorkerId(workerIdOf(key), deadline(start));
+                    return;
+                }
+                IdUtil.revokeWorkerId();
+                leasedKey = null;
+                lost(key);
+                return;
+            }
+            if (start < leaseAfter) {
+                return;
+            }
+            Long workerId = lease();
+            if (workerId == null) {
+                log.error("===[WorkerIdLease][renew] 机器id已全部被占用, 稍后重试: {}", applicationName);
+                return;
+            }
+            log.info("===[WorkerIdLease][renew] 重新租用机器id: {}", workerId);
+        } catch (Exception e) {
+            // 本地有效期到期后 IdUtil 自动拒绝生成ID, Redis恢复后续约即可继续
+            log.error("===[WorkerIdLease][renew] 续约失败: {}", key, e);
+        }
+    }
+
+    /**
+     * 租约丢失(如Redis故障转移丢失数据): 原key不存在时以安全余量重新占用, 避免其他节点立即取得同一机器id;
+     * 同样丢失租约的其他节点最迟在一个续约间隔内发现并停止生成ID, 因此等待 续约间隔 + 安全余量 后再重新租用
+     */
+    private void lost(String key) {
+        long delay = properties.getRenewSeconds() + properties.getLeaseMarginSeconds();
+        leaseAfter = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(delay);
+        renewer.schedule(this::renew, delay, TimeUnit.SECONDS);
+        boolean held = Boolean.TRUE.equals(redisService.setIfAbsent(key, token, properties.getLeaseMarginSeconds()));
+        log.error("===[WorkerIdLease][renew] 租约已失效, 停止生成ID, {}秒后重新租用: {} 保留原key: {}", delay, key, held);
+    }
+
+    /**
+     * 本地租约截止时间: 从请求前开始计算, 并减去安全余量
+     */
+    private long deadline(long start) {
+        return start + TimeUnit.SECONDS.toMillis(properties.getLeaseSeconds() - properties.getLeaseMarginSeconds());
+    }
+
+    /**
+     * 安全余量须覆盖一个时间单位及备份机器可借用的时间(IdUtil 限制最多领先当前时间 backTimeMax), 续约间隔须允许一次续约失败
+     */
+    private void checkLease() {
+        IdLayout layout = IdUtil.getLayout();
+        long minMarginMillis = layout.getTimeUnit().toMillis(layout.getBackTimeMax() + 2);
+        if (TimeUnit.SECONDS.toMillis(properties.getLeaseMarginSeconds()) < minMarginMillis) {
+            throw new IllegalArgumentException(String.format("租约安全余量过小: [%ds] 至少: [%dms]",
+                    properties.getLeaseMarginSeconds(), minMarginMillis));
+        }
+        long effective = properties.getLeaseSeconds() - properties.getLeaseMarginSeconds();
+        if (properties.getRenewSeconds() <= 0 || properties.getRenewSeconds() * 2 > effective) {
+            throw new IllegalArgumentException(String.format("续约间隔须大于0且不超过 (租约时长 - 安全余量) / 2: [%ds] 租约: [%ds] 余量: [%ds]",
+                    properties.getRenewSeconds(), properties.getLeaseSeconds(), properties.getLeaseMarginSeconds()));
+        }
+    }
+
+    private String key(long workerId) {
+        return KEY_PREFIX + applicationName + ":" + workerId;
+    }
+
+    private static long workerIdOf(String key) {
+        return Long.parseLong(StrUtil.subAfter(key, ":", true));
+    }
+
+    private File file() {
+        String path = properties.getWorkerIdFile();
+        if (StrUtil.isBlank(path)) {
+            path = System.getProperty("user.home") + File.separator + ".frestream" + File.separator + "worker-id-" + applicationName;
+        }
+        return new File(path);
+    }
+
+    /**
+     * 读取本地文件中的机器id, 文件不存在时写入配置的机器id
+     */
+    private long readFile() {
+        File file = file();
+        if (file.isFile()) {
+            String content = StrUtil.trim(FileUtil.readString(file, StandardCharsets.UTF_8));
+            if (StrUtil.isNotEmpty(content)) {
+                return Long.parseLong(content);
+            }
+        }
+        writeFile(properties.getWorkerId());
+        return properties.getWorkerId();
+    }
+
+    /**
+     * 写入机器id文件
+     */
+    private void writeFile(long workerId) {
+        try {
+            FileUtil.writeString(String.valueOf(workerId), file(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.warn("===[WorkerIdLease][writeFile] 写入机器id文件失败: {}", file(), e);
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package com.frestream.common.handler.web;
 
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.StrUtil;
+import com.frestream.cache.limit.RateLimitRule;
+import com.frestream.cache.limit.RedisRateLimiter;
+import com.frestream.common.annotations.RateLimit;
+import com.frestream.common.config.RateLimitProperties;
+import com.frestream.common.exception.BizException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @description: 通用拦截器
@@ -15,9 +31,31 @@ import javax.servlet.http.HttpServletResponse;
 @Slf4j
 public class CommonInterceptor implements HandlerInterceptor {
 
+    private final RedisRateLimiter rateLimiter;
+    private final RateLimitProperties rateLimitProperties;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 接口方法上解析到的限流规则, 无注解时为空
+     */
+    private final Map<Method, Optional<Limit>> methodLimits = new ConcurrentHashMap<>();
+    /**
+     * 路由配置对应的限流规则
+     */
+    private final Map<RateLimitProperties.Route, Limit> routeLimits = new ConcurrentHashMap<>();
+
+    public CommonInterceptor(RedisRateLimiter rateLimiter, RateLimitProperties rateLimitProperties, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.rateLimitProperties = rateLimitProperties;
+        this.meterRegistry = meterRegistry;
+    }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (rateLimitProperties.isEnabled()) {
+            checkRateLimit(request, handler);
+        }
         return HandlerInterceptor.super.preHandle(request, response, handler);
     }
 
@@ -25,4 +63,127 @@ public class CommonInterceptor implements HandlerInterceptor {
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
         HandlerInterceptor.super.afterCompletion(request, response, handler, ex);
     }
+
+    /**
+     * 集群限流, 注解优先于路由配置
+     */
+    private void checkRateLimit(HttpServletRequest request, Object handler) {
+        Limit limit = null;
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            limit = methodLimits.computeIfAbsent(handlerMethod.getMethod(), method -> parseLimit(handlerMethod)).orElse(null);
+        }
+        if (limit == null) {
+            limit = matchRoute(request.getRequestURI());
+        }
+        if (limit == null) {
+            return;
+        }
+
+        String name = limit.perIp ? limit.name + ":" + clientIp(request) : limit.name;
+        long start = System.nanoTime();
+        boolean acquired = rateLimiter.tryAcquire(name, limit.rule);
+        (acquired ? limit.passTimer : limit.rejectTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            throw new BizException(limit.message);
+        }
+    }
+
+    private Optional<Limit> parseLimit(HandlerMethod handlerMethod) {
+        RateLimit rateLimit = handlerMethod.getMethodAnnotation(RateLimit.class);
+        if (rateLimit == null) {
+            rateLimit = handlerMethod.getBeanType().getAnnotation(RateLimit.class);
+        }
+        if (rateLimit == null) {
+            return Optional.empty();
+        }
+        RateLimitRule rule = new RateLimitRule()
+                .setAlgorithm(rateLimit.algorithm())
+                .setRate(rateLimit.rate())
+                .setCapacity(rateLimit.capacity())
+                .setWindow(rateLimit.window())
+                .setLeaseSize(rateLimit.leaseSize())
+                .validate();
+        String name = handlerMethod.getBeanType().getName() + "#" + handlerMethod.getMethod().getName();
+        return Optional.of(new Limit(name, rule, rateLimit.perIp(), rateLimit.message()));
+    }
+
+    private Limit matchRoute(String uri) {
+        for (RateLimitProperties.Route route : rateLimitProperties.getRoutes()) {
+            if (pathMatcher.match(route.getPath(), uri)) {
+                return routeLimits.computeIfAbsent(route, r -> new Limit(r.getPath(), r, r.isPerIp(), r.getMessage()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 客户端ip: 直连地址是可信代理时, 从 X-Forwarded-For 末尾向前取第一个非可信代理的地址, 否则使用直连地址;
+     * 请求头可被客户端伪造, 不能无条件信任
+     */
+    private String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (StrUtil.isBlank(forwardedFor)) {
+            return remoteAddr;
+        }
+        String[] addresses = forwardedFor.split(",");
+        for (int i = addresses.length - 1; i >= 0; i--) {
+            String address = addresses[i].trim();
+            if (!address.isEmpty() && !isTrustedProxy(address)) {
+                return address;
+            }
+        }
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (String proxy : rateLimitProperties.getTrustedProxies()) {
+            if (proxy.equals(address)) {
+                return true;
+            }
+            if (proxy.indexOf('/') > 0 && isIpv4(address) && NetUtil.isInRange(address, proxy)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIpv4(String address) {
+        int dots = 0;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c == '.') {
+                dots++;
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return dots == 3;
+    }
+
+    /**
+     * 限流规则及其监控指标
+     */
+    private class Limit {
+
+        private final String name;
+        private final RateLimitRule rule;
+        private final boolean perIp;
+        private final String message;
+        private final Timer passTimer;
+        private final Timer rejectTimer;
+
+        private Limit(String name, RateLimitRule rule, boolean perIp, String message) {
+            this.name = name;
+            this.rule = rule;
+            this.perIp = perIp;
+            this.message = message;
+            this.passTimer = meterRegistry.timer("frestream.rate.limit.decision", "limit", name, "result", "pass");
+            this.rejectTimer = meterRegistry.timer("frestream.rate.limit.decision", "limit", name, "result", "reject");
+        }
+    }
 }
@@ -3,9 +3,9 @@ package com.frestream.common.handler.web;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.extra.servlet.ServletUtil;
 import com.frestream.common.annotations.PostParam;
 import com.frestream.common.exception.BizException;
+import com.frestream.core.utils.JsonCodec;
 import com.frestream.core.utils.JsonUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.MethodParameter;
@@ -13,6 +13,8 @@ import org.springframework.web.bind.support.WebDataBinderFactory;
 import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.WebUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
@@ -28,6 +30,16 @@ import java.util.Map;
 @SuppressWarnings("all")
 public class PostParamMethodArgumentResolver implements HandlerMethodArgumentResolver {
 
+    /**
+     * 解析后的请求body, 同一请求的多个参数只解析一次
+     */
+    private static final String PARAMS_ATTRIBUTE = PostParamMethodArgumentResolver.class.getName() + ".params";
+
+    /**
+     * 请求body的读取句柄, 预先构建 reader, 每次请求不再查找类型
+     */
+    private static final JsonCodec<Map<String, Object>> PARAMS_CODEC = JsonUtil.mapCodec(String.class, Object.class);
+
     /**
      * 判断是否需要处理该参数
      */
@@ -45,10 +57,7 @@ public class PostParamMethodArgumentResolver implements HandlerMethodArgumentRes
         }
         checkRequest(servletRequest);
 
-        // 获取请求body
-        String requestBody = ServletUtil.getBody(servletRequest);
-        Map<String, Object> params = JsonUtil.fromJsonToMap(requestBody);
-        params = MapUtil.isEmpty(params) ? new HashMap<>(0) : params;
+        Map<String, Object> params = getParams(servletRequest);
 
         // 获取注解指定的参数值
         PostParam postParam = parameter.getParameterAnnotation(PostParam.class);
@@ -62,6 +71,26 @@ public class PostParamMethodArgumentResolver implements HandlerMethodArgumentRes
         return value;
     }
 
+    /**
+     * 获取请求body, 直接从字节流解析, 不经过String
+     */
+    private Map<String, Object> getParams(HttpServletRequest servletRequest) throws Exception {
+        Map<String, Object> params = (Map<String, Object>) servletRequest.getAttribute(PARAMS_ATTRIBUTE);
+        if (params != null) {
+            return params;
+        }
+        ContentCachingRequestWrapper cachingRequest = WebUtils.getNativeRequest(servletRequest, ContentCachingRequestWrapper.class);
+        if (cachingRequest != null && cachingRequest.getContentAsByteArray().length > 0) {
+            // body已被读取过, 使用缓存的内容
+            params = PARAMS_CODEC.read(cachingRequest.getContentAsByteArray());
+        } else {
+            params = PARAMS_CODEC.read(servletRequest.getInputStream());
+        }
+        params = MapUtil.isEmpty(params) ? new HashMap<>(0) : params;
+        servletRequest.setAttribute(PARAMS_ATTRIBUTE, params);
+        return params;
+    }
+
     private void checkRequest(HttpServletRequest servletRequest) {
 
         String contentType = servletRequest.getContentType();
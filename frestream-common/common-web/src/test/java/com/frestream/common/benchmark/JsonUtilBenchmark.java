@@ -0,0 +1,177 @@
+package com.frestream.common.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.frestream.common.model.logs.LogDTO;
+import com.frestream.common.response.Result;
+import com.frestream.core.utils.JsonCodec;
+import com.frestream.core.utils.JsonUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description:
+ *   JsonUtil 读写耗时: 原实现(每次调用构造类型、通过 ObjectMapper 查找根序列化器, 反射读写属性)、
+ *   JsonUtil 当前实现(缓存 reader, 类路径中有 Afterburner 时自动注册) 与 JsonCodec 句柄的对比,
+ *   数据为 LogDTO、Result 与 Map.
+ *   运行: mvn test-compile -pl frestream-common/common-web -am 后执行本类的 main 方法;
+ *   -Dfrestream.json.afterburner=false 可单独比较缓存的效果
+ *
+ * @author: TJ
+ * @date:  2022-09-29
+ **/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonUtilBenchmark {
+
+    private static final JsonCodec<LogDTO> LOG_CODEC = JsonUtil.codec(LogDTO.class);
+    private static final JsonCodec<Result> RESULT_CODEC = JsonUtil.codec(Result.class);
+    private static final JsonCodec<Map<String, Object>> MAP_CODEC = JsonUtil.mapCodec(String.class, Object.class);
+
+    /**
+     * 原实现使用的 ObjectMapper, 配置与 JsonUtil 相同, 不注册模块
+     */
+    private ObjectMapper plainMapper;
+
+    private LogDTO log;
+    private Result result;
+    private Map<String, Object> map;
+    private String logJson;
+    private String resultJson;
+    private String mapJson;
+
+    @Setup
+    public void setUp() {
+        plainMapper = new ObjectMapper();
+        plainMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        plainMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+
+        log = new LogDTO()
+                .setApplicationName("frestream-system")
+                .setUserId("1024")
+                .setParam("[{\"pageNum\":1,\"pageSize\":20,\"keyword\":\"订单\"}]")
+                .setResult("{\"code\":\"200\",\"message\":\"成功\"}")
+                .setIp("10.0.12.34")
+                .setMethodName("com.frestream.system.controller.SysUserController#page")
+                .setUrl("/sys-user/page")
+                .setExecuteTime(37L)
+                .setDesc("用户分页查询");
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", 1000L + i);
+            row.put("username", "user" + i);
+            row.put("nickname", "用户" + i);
+            row.put("status", i % 2);
+            row.put("createTime", "2022-09-29 10:00:00");
+            rows.add(row);
+        }
+        result = Result.ok(rows);
+
+        map = new LinkedHashMap<>();
+        map.put("orderNo", "SO202209290001");
+        map.put("amount", 199.9D);
+        map.put("items", rows.subList(0, 5));
+        map.put("remark", "尽快发货");
+
+        logJson = JsonUtil.toJson(log);
+        resultJson = JsonUtil.toJson(result);
+        mapJson = JsonUtil.toJson(map);
+    }
+
+    // ============================================== LogDTO
+
+    @Benchmark
+    public String logWritePlain() throws Exception {
+        return plainMapper.writeValueAsString(log);
+    }
+
+    @Benchmark
+    public String logWrite() {
+        return JsonUtil.toJson(log);
+    }
+
+    @Benchmark
+    public String logWriteCodec() {
+        return LOG_CODEC.write(log);
+    }
+
+    @Benchmark
+    public LogDTO logReadPlain() throws Exception {
+        return plainMapper.readValue(logJson, LogDTO.class);
+    }
+
+    @Benchmark
+    public LogDTO logRead() {
+        return JsonUtil.fromJson(logJson, LogDTO.class);
+    }
+
+    @Benchmark
+    public LogDTO logReadCodec() {
+        return LOG_CODEC.read(logJson);
+    }
+
+    // ============================================== Result
+
+    @Benchmark
+    public String resultWritePlain() throws Exception {
+        return plainMapper.writeValueAsString(result);
+    }
+
+    @Benchmark
+    public String resultWrite() {
+        return JsonUtil.toJson(result);
+    }
+
+    @Benchmark
+    public Result resultReadPlain() throws Exception {
+        return plainMapper.readValue(resultJson, Result.class);
+    }
+
+    @Benchmark
+    public Result resultReadCodec() {
+        return RESULT_CODEC.read(resultJson);
+    }
+
+    // ============================================== Map
+
+    @Benchmark
+    public Map<String, Object> mapReadPlain() throws Exception {
+        JavaType type = plainMapper.getTypeFactory().constructMapLikeType(Map.class, String.class, Object.class);
+        return plainMapper.readValue(mapJson, type);
+    }
+
+    @Benchmark
+    public Map<String, Object> mapRead() {
+        return JsonUtil.fromJsonToMap(mapJson);
+    }
+
+    @Benchmark
+    public Map<String, Object> mapReadCodec() {
+        return MAP_CODEC.read(mapJson);
+    }
+
+    @Benchmark
+    public String mapWrite() {
+        return JsonUtil.toJson(map);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JsonUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}